@@ -0,0 +1,62 @@
+package com.etudiant.tp1.users_api.benchmark;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.etudiant.tp1.users_api.security.AuthenticatedUser;
+import com.etudiant.tp1.users_api.security.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+
+// Objets partagés par les benchmarks, construits sans contexte Spring
+final class BenchmarkFixtures {
+
+    static final String SECRET = "monsecretultra-secret-long-de-32-caracteres-minimum-pour-hs256";
+    static final String EMAIL = "bench@example.com";
+    static final String PASSWORD_HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z2Q8s5E0eYwHw8rGg7Qk4GLa";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtService jwtService(boolean claimsCacheEnabled) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "expirationTime", 3_600_000L);
+        ReflectionTestUtils.setField(service, "claimsCacheEnabled", claimsCacheEnabled);
+        ReflectionTestUtils.setField(service, "claimsCacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.init();
+        return service;
+    }
+
+    static AuthenticatedUser authenticatedUser() {
+        return new AuthenticatedUser(1L, EMAIL, PASSWORD_HASH, "USER", 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    static User user(long id) {
+        User user = new User("User " + id, "user" + id + "@example.com", PASSWORD_HASH, "USER");
+        user.setId(id);
+        return user;
+    }
+
+    // Dépôt factice : répond instantanément aux requêtes du chemin d'authentification
+    static UserRepository stubRepository() {
+        User user = user(1L);
+        user.setEmail(EMAIL);
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] { UserRepository.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByEmail" -> Optional.of(user);
+                    case "findTokenVersionById" -> Optional.of(0);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubUserRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
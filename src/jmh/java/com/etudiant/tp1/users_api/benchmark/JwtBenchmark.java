@@ -0,0 +1,57 @@
+package com.etudiant.tp1.users_api.benchmark;
+
+import com.etudiant.tp1.users_api.security.AuthenticatedUser;
+import com.etudiant.tp1.users_api.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Coût de JwtService : génération d'un token et vérification (avec ou sans cache)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtService uncachedService;
+    private JwtService cachedService;
+    private AuthenticatedUser user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncachedService = BenchmarkFixtures.jwtService(false);
+        cachedService = BenchmarkFixtures.jwtService(true);
+        user = BenchmarkFixtures.authenticatedUser();
+        token = uncachedService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return uncachedService.generateToken(user);
+    }
+
+    // Parsing + vérification HMAC à chaque appel (chemin extractAllClaims)
+    @Benchmark
+    public Claims parseAndVerify() {
+        return uncachedService.parseToken(token);
+    }
+
+    // Même token présenté à chaque requête : servi par le cache des claims
+    @Benchmark
+    public Claims parseCached() {
+        return cachedService.parseToken(token);
+    }
+}
@@ -0,0 +1,96 @@
+package com.etudiant.tp1.users_api.benchmark;
+
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.etudiant.tp1.users_api.security.CustomUserDetailsService;
+import com.etudiant.tp1.users_api.security.JwtAuthenticationFilter;
+import com.etudiant.tp1.users_api.security.JwtService;
+import com.etudiant.tp1.users_api.security.TokenVersionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Passage complet dans JwtAuthenticationFilter avec un dépôt factice
+// claimsCache : cache des tokens vérifiés ; userCacheSize = 0 désactive le cache
+// des utilisateurs ; stateless : authentification construite depuis les claims
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean claimsCache;
+
+    @Param({ "0", "10000" })
+    public long userCacheSize;
+
+    @Param({ "false", "true" })
+    public boolean stateless;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = BenchmarkFixtures.jwtService(claimsCache);
+        UserRepository repository = BenchmarkFixtures.stubRepository();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "userRepository", repository);
+        ReflectionTestUtils.setField(userDetailsService, "cacheMaxSize", userCacheSize);
+        ReflectionTestUtils.setField(userDetailsService, "cacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(userDetailsService, "meterRegistry", meterRegistry);
+        userDetailsService.init();
+
+        TokenVersionRegistry tokenVersionRegistry = new TokenVersionRegistry();
+        ReflectionTestUtils.setField(tokenVersionRegistry, "userRepository", repository);
+        ReflectionTestUtils.setField(tokenVersionRegistry, "maxSize", 10_000L);
+        ReflectionTestUtils.setField(tokenVersionRegistry, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(tokenVersionRegistry, "meterRegistry", meterRegistry);
+        tokenVersionRegistry.init();
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "tokenVersionRegistry", tokenVersionRegistry);
+        ReflectionTestUtils.setField(filter, "statelessEnabled", stateless);
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.initMetrics();
+
+        authorization = "Bearer " + jwtService.generateToken(BenchmarkFixtures.authenticatedUser());
+    }
+
+    @Benchmark
+    public Authentication filterPass() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
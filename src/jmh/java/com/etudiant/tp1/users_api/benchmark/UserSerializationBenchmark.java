@@ -0,0 +1,74 @@
+package com.etudiant.tp1.users_api.benchmark;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Sérialisation Jackson d'une liste de User (corps de GET /users), avec et sans le
+// module Blackbird, puis avec la compression gzip appliquée par Tomcat.
+// Le JSON est écrit dans un flux vide, comme le convertisseur HTTP écrit dans la réponse :
+// on mesure la sérialisation, pas la copie d'un tableau de plusieurs centaines de Mo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserSerializationBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    // false : configuration d'avant (réflexion), true : users.json.blackbird.enabled
+    @Param({ "false", "true" })
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        // Même configuration par défaut que l'ObjectMapper de Spring Boot
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (blackbird) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+        users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            users.add(BenchmarkFixtures.user(id));
+        }
+    }
+
+    @Benchmark
+    public void serializeList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+    }
+
+    // Coût ajouté par server.compression (gzip, niveau par défaut de Tomcat)
+    @Benchmark
+    public void serializeListGzip() throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(OutputStream.nullOutputStream(), 8192)) {
+            objectMapper.writeValue(gzip, users);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.etudiant.tp1.users_api.audit;
+
+// Actions conservées dans le journal d'audit (colonne audit_events.action)
+public enum AuditAction {
+    USER_CREATED, USER_UPDATED, USER_DELETED, LOGIN_SUCCESS, LOGIN_FAILURE
+}
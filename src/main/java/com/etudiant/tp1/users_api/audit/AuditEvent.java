@@ -0,0 +1,9 @@
+package com.etudiant.tp1.users_api.audit;
+
+import java.time.Instant;
+
+// Une ligne du journal d'audit : qui (actor) a fait quoi (action) sur quel utilisateur
+// userId et email valent null quand ils ne sont pas connus au moment de l'action
+// (ex. email d'un utilisateur supprimé par id, id d'un email inconnu à la connexion)
+public record AuditEvent(Instant occurredAt, AuditAction action, Long userId, String email, String actor) {
+}
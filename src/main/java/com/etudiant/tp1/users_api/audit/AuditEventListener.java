@@ -0,0 +1,57 @@
+package com.etudiant.tp1.users_api.audit;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// Alimente le journal d'audit à partir des événements existants, sans code d'audit
+// dans les contrôleurs : UserChangedEvent pour les créations, modifications et
+// suppressions, événements Spring Security de l'AuthenticationManager pour /auth/login.
+// Les écouteurs s'exécutent sur le thread de la requête : ils ne font qu'ajouter à la file
+@Component
+public class AuditEventListener {
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        AuditAction action = switch (event.type()) {
+            case CREATED -> AuditAction.USER_CREATED;
+            case UPDATED -> AuditAction.USER_UPDATED;
+            case DELETED -> AuditAction.USER_DELETED;
+        };
+        String email = event.email() != null ? event.email() : event.previousEmail();
+        auditLog.record(action, event.userId(), email, currentActor());
+    }
+
+    @EventListener
+    public void onLoginSuccess(AuthenticationSuccessEvent event) {
+        Authentication authentication = event.getAuthentication();
+        Long userId = authentication.getPrincipal() instanceof AuthenticatedUser user ? user.getId() : null;
+        auditLog.record(AuditAction.LOGIN_SUCCESS, userId, authentication.getName(), authentication.getName());
+    }
+
+    // Mauvais mot de passe, email inconnu, compte désactivé...
+    @EventListener
+    public void onLoginFailure(AbstractAuthenticationFailureEvent event) {
+        String email = event.getAuthentication().getName();
+        auditLog.record(AuditAction.LOGIN_FAILURE, null, email, email);
+    }
+
+    // Utilisateur authentifié à l'origine de la requête, null pour une inscription
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
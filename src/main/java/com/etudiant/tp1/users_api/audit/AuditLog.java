@@ -0,0 +1,226 @@
+package com.etudiant.tp1.users_api.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Journal d'audit asynchrone : record() ajoute l'événement à une file sans verrou et
+// rend la main, un thread dédié l'écrit plus tard dans audit_events par INSERT
+// multi-lignes, dès que batch-size événements attendent ou après flush-interval.
+// La file est bornée (queue-capacity) : au-delà, l'événement est abandonné (DROP) ou
+// l'appelant attend au plus block-timeout qu'une place se libère (BLOCK).
+// À l'arrêt, les événements déjà acceptés sont écrits avant la fermeture du DataSource
+@Component
+public class AuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final String INSERT_SQL = "INSERT INTO audit_events (occurred_at, action, user_id, email, actor) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?)";
+
+    // Comportement quand la file est pleine
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // Lignes par INSERT (5 paramètres par ligne, PostgreSQL en accepte 65535 par requête)
+    @Value("${audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.flush-interval:1s}")
+    private Duration flushInterval;
+
+    @Value("${audit.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    // Attente maximale d'une place en mode BLOCK, l'événement est abandonné ensuite
+    @Value("${audit.block-timeout:10ms}")
+    private Duration blockTimeout;
+
+    // Temps laissé au thread d'écriture pour vider la file à l'arrêt
+    @Value("${audit.shutdown-timeout:10s}")
+    private Duration shutdownTimeout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentLinkedQueue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    // Événements acceptés et pas encore retirés de la file (la taille de
+    // ConcurrentLinkedQueue n'est pas en temps constant)
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    private Thread writer;
+    private String fullBatchSql;
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        this.batchSize = Math.max(1, Math.min(batchSize, 65535 / 5));
+        this.fullBatchSql = insertSql(batchSize);
+        this.writtenCounter = outcomeCounter("written");
+        this.droppedCounter = outcomeCounter("dropped");
+        this.failedCounter = outcomeCounter("failed");
+        Gauge.builder("audit.queue.size", pending, AtomicInteger::get)
+                .description("Événements d'audit en attente d'écriture")
+                .register(meterRegistry);
+        if (enabled) {
+            this.writer = new Thread(this::runWriter, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    // Écrit les événements restants, dans la limite de shutdown-timeout
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.warn("Audit log not drained after {}, {} events lost", shutdownTimeout, pending.get());
+        }
+    }
+
+    // Ajoute l'événement à la file ; faux s'il a été abandonné (file pleine ou arrêt)
+    public boolean record(AuditEvent event) {
+        if (!enabled) {
+            return false;
+        }
+        long deadline = 0;
+        while (true) {
+            // Réserve la place avant de vérifier closed : le thread d'écriture ne
+            // s'arrête qu'une fois pending à 0, il ne peut pas manquer cet événement
+            int size = pending.incrementAndGet();
+            if (closed) {
+                pending.decrementAndGet();
+                droppedCounter.increment();
+                return false;
+            }
+            if (size <= queueCapacity) {
+                queue.offer(event);
+                if (size == batchSize) {
+                    LockSupport.unpark(writer);
+                }
+                return true;
+            }
+            pending.decrementAndGet();
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                droppedCounter.increment();
+                return false;
+            }
+            // BLOCK : attend que le thread d'écriture libère de la place
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + blockTimeout.toNanos();
+                LockSupport.unpark(writer);
+            } else if (now - deadline >= 0) {
+                droppedCounter.increment();
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+    }
+
+    // Raccourci horodaté à l'instant de l'appel
+    public void record(AuditAction action, Long userId, String email, String actor) {
+        record(new AuditEvent(Instant.now(), action, userId, email, actor));
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            if (pending.get() < batchSize && !closed) {
+                LockSupport.parkNanos(flushInterval.toNanos());
+            }
+            AuditEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                pending.decrementAndGet();
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            } else if (closed) {
+                if (pending.get() == 0) {
+                    return;
+                }
+                // Place réservée par un appelant qui n'a pas encore ajouté son événement
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        String sql = batch.size() == batchSize ? fullBatchSql : insertSql(batch.size());
+        try {
+            jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (AuditEvent event : batch) {
+                    ps.setTimestamp(index++, Timestamp.from(event.occurredAt()));
+                    ps.setString(index++, event.action().name());
+                    if (event.userId() != null) {
+                        ps.setLong(index++, event.userId());
+                    } else {
+                        ps.setNull(index++, Types.BIGINT);
+                    }
+                    ps.setString(index++, event.email());
+                    ps.setString(index++, event.actor());
+                }
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Base indisponible : le paquet est perdu, la file continue d'être vidée
+            failedCounter.increment(batch.size());
+            log.warn("Failed to write {} audit events", batch.size(), e);
+        }
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("audit.events")
+                .description("Événements d'audit par résultat")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package com.etudiant.tp1.users_api.config;
+
+import java.util.function.Supplier;
+
+// Forçage ponctuel du primaire pour les lectures du thread courant
+// Utilisé quand une lecture sur le réplica pourrait renvoyer une donnée en retard
+// sur une écriture récente (voir ReplicaRoutingDataSource)
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    // Exécute l'action avec toutes ses lectures routées vers le primaire
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+
+    static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+}
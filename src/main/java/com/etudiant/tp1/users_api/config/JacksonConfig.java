@@ -0,0 +1,21 @@
+package com.etudiant.tp1.users_api.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Module Blackbird : Jackson appelle les getters/setters par des lambdas générées
+// (LambdaMetafactory) au lieu de Method.invoke, ce qui réduit le coût par champ sur
+// les grosses listes (GET /users, export NDJSON). Spring Boot enregistre tout bean
+// Module dans l'ObjectMapper ; users.json.blackbird.enabled=false revient à la réflexion
+@Configuration
+@ConditionalOnProperty(name = "users.json.blackbird.enabled", havingValue = "true", matchIfMissing = true)
+public class JacksonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,43 @@
+package com.etudiant.tp1.users_api.config;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+
+// Mémorise pendant une fenêtre courte les emails qui viennent d'écrire (appelant
+// authentifié d'une transaction en écriture) ou d'être modifiés : leurs lectures
+// sont envoyées au primaire tant que le réplica peut être en retard
+public class ReadYourWritesTracker {
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWritesTracker(Duration stalenessWindow, long maxSize) {
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(stalenessWindow)
+                .build();
+    }
+
+    public void recordWrite(String email) {
+        recentWrites.put(email, Boolean.TRUE);
+    }
+
+    public boolean recentlyWrote(String email) {
+        return recentWrites.getIfPresent(email) != null;
+    }
+
+    // L'utilisateur modifié relit lui aussi ses propres données sur le primaire
+    // (ex. connexion juste après l'inscription ou un changement de mot de passe)
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.email() != null) {
+            recordWrite(event.email());
+        }
+        if (event.previousEmail() != null) {
+            recordWrite(event.previousEmail());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.etudiant.tp1.users_api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+// Routage lecture / écriture, actif dès que users.datasource.replica.url est défini
+// (variable USERS_DATASOURCE_REPLICA_URL) :
+// - primaryDataSource : pool Hikari du primaire (spring.datasource.*)
+// - replicaDataSource : pool Hikari du réplica (users.datasource.replica.*)
+// - dataSource : DataSource utilisé par JPA et JdbcTemplate, qui choisit le pool
+//   selon la transaction (voir ReplicaRoutingDataSource)
+// Sans réplica, Spring Boot crée son unique pool comme avant
+@Configuration
+@ConditionalOnProperty(prefix = "users.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(Environment environment) {
+        Duration window = environment.getProperty("users.datasource.replica.staleness-window", Duration.class,
+                Duration.ofSeconds(5));
+        long maxSize = environment.getProperty("users.datasource.replica.tracked-writers", Long.class, 100_000L);
+        return new ReadYourWritesTracker(window, maxSize);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Identifiants et driver du primaire par défaut
+    @Bean
+    @ConfigurationProperties("users.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty("users.datasource.replica.url"))
+                .username(environment.getProperty("users.datasource.replica.username",
+                        properties.determineUsername()))
+                .password(environment.getProperty("users.datasource.replica.password",
+                        properties.determinePassword()))
+                .driverClassName(properties.determineDriverClassName())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    // Les pools sont injectés en tant que DataSource : en mode threads virtuels, ils
+    // sont enveloppés dans ConnectionLimitingDataSource
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica, ReadYourWritesTracker tracker) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(tracker);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primary,
+                ReplicaRoutingDataSource.Target.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,58 @@
+package com.etudiant.tp1.users_api.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Envoie les transactions @Transactional(readOnly = true) vers le pool du réplica et
+// tout le reste (écritures, accès hors transaction) vers le primaire
+// Doit être placé derrière un LazyConnectionDataSourceProxy : la connexion n'est
+// alors demandée qu'à la première requête SQL, quand le caractère readOnly de la
+// transaction est connu
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReadYourWritesTracker tracker;
+
+    public ReplicaRoutingDataSource(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String caller = currentCaller();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Écriture : l'appelant lira sur le primaire pendant la fenêtre de retard,
+            // comptée à partir du commit
+            if (caller != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        tracker.recordWrite(caller);
+                    }
+                });
+            }
+            return Target.PRIMARY;
+        }
+        if (DataSourceRouting.isPrimaryForced() || (caller != null && tracker.recentlyWrote(caller))) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    // Email de l'utilisateur authentifié, null pour une requête anonyme
+    private static String currentCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,39 @@
+package com.etudiant.tp1.users_api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Mode threads virtuels (spring.threads.virtual.enabled=true, Java 21+)
+// Spring Boot exécute alors les requêtes Tomcat sur des threads virtuels ; cette
+// configuration ajoute le limiteur de connexions devant le pool Hikari
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    // Enveloppe le DataSource créé par Spring Boot dans ConnectionLimitingDataSource
+    @Bean
+    static BeanPostProcessor connectionLimitingPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                // Par défaut, autant de jetons que de connexions dans le pool
+                int permits = environment.getProperty("users.datasource.limiter.permits", Integer.class,
+                        hikari.getMaximumPoolSize());
+                int maxWaiters = environment.getProperty("users.datasource.limiter.max-waiters", Integer.class,
+                        1000);
+                Duration acquireTimeout = environment.getProperty("users.datasource.limiter.acquire-timeout",
+                        Duration.class, Duration.ofSeconds(2));
+                return new ConnectionLimitingDataSource(hikari, permits, maxWaiters, acquireTimeout);
+            }
+        };
+    }
+}
@@ -1,6 +1,9 @@
 package com.etudiant.tp1.users_api.controller;
 
+import com.etudiant.tp1.users_api.security.AuthenticatedUser;
 import com.etudiant.tp1.users_api.security.JwtService;
+import com.etudiant.tp1.users_api.security.LoginThrottle;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,17 +25,25 @@ public class AuthController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     // Endpoint pour se connecter et obtenir un JWT
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // Limite par email et par IP : 429 avant la lecture en base et le calcul BCrypt
+        loginThrottle.acquire(request.getUsername(), httpRequest.getRemoteAddr());
+
         // Authentifie l'utilisateur avec le nom d'utilisateur et le mot de passe
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
 
         // Récupère les détails de l'utilisateur authentifié
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        // Génère un token JWT pour l'utilisateur
-        String jwt = jwtService.generateToken(userDetails.getUsername());
+        // Génère un token JWT pour l'utilisateur (avec rôle et version si disponibles)
+        String jwt = userDetails instanceof AuthenticatedUser user
+                ? jwtService.generateToken(user)
+                : jwtService.generateToken(userDetails.getUsername());
 
         // Retourne le token JWT dans la réponse
         return ResponseEntity.ok(new LoginResponse(jwt));
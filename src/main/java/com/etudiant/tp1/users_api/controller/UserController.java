@@ -1,39 +1,204 @@
 package com.etudiant.tp1.users_api.controller;
 
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
 import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserFields;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserPageVersion;
+import com.etudiant.tp1.users_api.model.UserStats;
+import com.etudiant.tp1.users_api.model.UserSummary;
+import com.etudiant.tp1.users_api.model.UserUpdate;
+import com.etudiant.tp1.users_api.model.UserUpdateRequest;
 import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.etudiant.tp1.users_api.repository.UserRepositoryCustom;
+import com.etudiant.tp1.users_api.service.BatchItemResult;
+import com.etudiant.tp1.users_api.service.BulkDeleteRequest;
+import com.etudiant.tp1.users_api.service.RegisteredEmails;
+import com.etudiant.tp1.users_api.service.UserChangeFeed;
+import com.etudiant.tp1.users_api.service.UserBatchService;
+import com.etudiant.tp1.users_api.service.UserExportService;
+import com.etudiant.tp1.users_api.service.UserPurgeService;
+import com.etudiant.tp1.users_api.service.UserStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // En-tête de préférence de réponse (RFC 7240) utilisé par PUT / PATCH
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String RETURN_REPRESENTATION = "return=representation";
+
+    // Longueur maximale du terme de recherche
+    private static final int MAX_SEARCH_LENGTH = 100;
+
     @Autowired
     private final UserRepository repository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserExportService exportService;
+
+    @Autowired
+    private UserBatchService batchService;
+
+    @Autowired
+    private UserPurgeService purgeService;
+
+    @Autowired
+    private UserChangeFeed changeFeed;
+
+    @Autowired
+    private UserStatsService statsService;
+
+    @Autowired
+    private RegisteredEmails registeredEmails;
+
+    // Publie les changements (invalidation des caches de sécurité, etc.)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Taille de page par défaut et taille maximale imposée par le serveur
+    @Value("${users.pagination.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${users.pagination.max-limit:500}")
+    private int maxLimit;
+
+    // Nombre maximal d'utilisateurs acceptés par POST /users/batch
+    @Value("${users.batch.max-items:10000}")
+    private int maxBatchItems;
+
+    // Nombre maximal d'ids acceptés par POST /users/bulk-delete
+    @Value("${users.bulk-delete.max-ids:100000}")
+    private int maxBulkDeleteIds;
+
     public UserController(UserRepository repository) {
         this.repository = repository;
     }
 
-    // Récupère tous les utilisateurs (nécessite rôle USER ou ADMIN)
+    // Récupère une page d'utilisateurs triés par id (nécessite rôle USER ou ADMIN)
+    // Pagination par curseur : ?after=<curseur>&limit=N, le curseur de la page
+    // suivante est renvoyé dans l'en-tête X-Next-Cursor (absent sur la dernière page)
+    // ?fields=email,role : seules ces colonnes (et l'id) sont lues et renvoyées
+    // La réponse porte un ETag ; avec If-None-Match, une page inchangée donne 304
+    // sans lire les lignes
     @GetMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public List<User> getAllUsers() {
-        return repository.findAll();
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int pageSize = resolvePageSize(limit);
+        long afterId = UserCursor.decode(after);
+        Set<String> selectedFields = parseFields(fields);
+
+        // Requête conditionnelle : l'empreinte seule est calculée en base
+        if (ifNoneMatch != null) {
+            String etag = UserEtags.forPage(repository.findPageVersion(afterId, pageSize + 1), selectedFields);
+            if (UserEtags.matchesIfNoneMatch(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
+
+        // On lit un élément de plus pour savoir s'il existe une page suivante ; l'ETag
+        // est calculé sur les lignes lues (version incluse dans la projection)
+        if (selectedFields != null) {
+            List<UserFields> rows = repository.findFieldsByIdGreaterThan(selectedFields, afterId, pageSize + 1);
+            String etag = UserEtags.forPage(UserPageVersion.ofFields(rows), selectedFields);
+            return page(rows.stream().map(UserFields::values).toList(), pageSize,
+                    row -> ((Number) row.get("id")).longValue(), etag);
+        }
+        List<User> users = repository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+        return page(users, pageSize, User::getId, UserEtags.forPage(UserPageVersion.of(users), null));
+    }
+
+    // Recherche les utilisateurs dont l'email ou le nom commence par q, sans tenir
+    // compte de la casse (nécessite rôle USER ou ADMIN)
+    // Même pagination par curseur que GET /users, résultats réduits à UserSummary
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<List<UserSummary>> searchUsers(@RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        String prefix = likePrefix(q);
+        int pageSize = resolvePageSize(limit);
+        long afterId = UserCursor.decode(after);
+
+        List<UserSummary> users = repository.searchByPrefix(prefix, afterId, Limit.of(pageSize + 1));
+        return page(users, pageSize, UserSummary::id, null);
+    }
+
+    // Exporte tout l'annuaire en NDJSON (nécessite rôle ADMIN uniquement)
+    // Les lignes sont écrites au fil de la lecture, sans construire de liste en mémoire
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = out -> exportService.exportNdjson(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+                .body(body);
+    }
+
+    // Nombre total d'utilisateurs et répartition par rôle (nécessite rôle ADMIN uniquement)
+    // Lus dans des compteurs en mémoire, sans requête ; 503 avant le premier recalage
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserStats> getStats() {
+        UserStats stats = statsService.currentStats();
+        if (stats == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // Flux SSE des créations, modifications et suppressions (nécessite rôle USER ou ADMIN)
+    // Remplace l'interrogation périodique de GET /users. Après une coupure, le client
+    // renvoie Last-Event-ID : les événements manqués sont rejoués depuis un tampon en
+    // mémoire, ou un événement reset demande de relire GET /users s'ils n'y sont plus
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(lastEventId);
     }
 
     // Crée un nouvel utilisateur (public)
+    // Email déjà utilisé : 409, vérifié avant le hashage BCrypt (filtre de Bloom puis
+    // existsByEmail) et, pour une inscription concurrente, par la contrainte d'unicité
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
+        if (user.getEmail() != null && registeredEmails.exists(user.getEmail())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email already exists");
+        }
         if (user.getPassword() != null && !user.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(user.getPassword()));
         }
@@ -41,47 +206,239 @@ public class UserController {
         if (user.getRole() == null || user.getRole().isEmpty()) {
             user.setRole("USER");
         }
-        User savedUser = repository.save(user);
+        User savedUser;
+        try {
+            savedUser = repository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email already exists");
+        }
+        eventPublisher.publishEvent(UserChangedEvent.created(savedUser));
         return ResponseEntity.status(201).body(savedUser);
     }
 
+    // Crée plusieurs utilisateurs en une requête (nécessite rôle ADMIN uniquement)
+    // Renvoie un résultat par élément : CREATED, CONFLICT (email déjà pris) ou INVALID
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BatchItemResult>> createUsers(@RequestBody List<User> users) {
+        if (users.size() > maxBatchItems) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + maxBatchItems + " users per batch");
+        }
+        return ResponseEntity.ok(batchService.createAll(users));
+    }
+
     // Récupère un utilisateur par son ID (nécessite rôle USER ou ADMIN)
+    // ?fields=... comme pour GET /users
+    // ETag = version de la ligne ; avec If-None-Match, seule la version est lue
+    // d'abord, la ligne ne l'est que si elle a changé
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<User> getUser(@PathVariable Long id) {
+    public ResponseEntity<?> getUser(@PathVariable Long id, @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> selectedFields = parseFields(fields);
+        if (ifNoneMatch != null) {
+            Optional<Long> version = repository.findVersionById(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            String etag = UserEtags.forUser(version.get(), selectedFields);
+            if (UserEtags.matchesIfNoneMatch(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
+        if (selectedFields != null) {
+            return repository.findFieldsById(selectedFields, id)
+                    .map(row -> ResponseEntity.ok()
+                            .eTag(UserEtags.forUser(row.version(), selectedFields))
+                            .body(row.values()))
+                    .orElse(ResponseEntity.notFound().build());
+        }
         return repository.findById(id)
-                .map(user -> ResponseEntity.ok(user))
+                .map(user -> ResponseEntity.ok().eTag(UserEtags.forUser(user.getVersion(), null)).body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Modifie un utilisateur existant (nécessite rôle ADMIN uniquement)
+    // Même écriture que PATCH (seuls les champs fournis sont modifiés), mais renvoie
+    // toujours l'utilisateur modifié (200), comme avant l'UPDATE direct
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User newUser) {
-        return repository.findById(id)
-                .map(user -> {
-                    user.setName(newUser.getName());
-                    user.setEmail(newUser.getEmail());
-                    if (newUser.getPassword() != null && !newUser.getPassword().isEmpty()) {
-                        user.setPassword(passwordEncoder.encode(newUser.getPassword()));
-                    }
-                    // Permet de modifier le rôle uniquement si fourni
-                    if (newUser.getRole() != null && !newUser.getRole().isEmpty()) {
-                        user.setRole(newUser.getRole());
-                    }
-                    return ResponseEntity.ok(repository.save(user));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody UserUpdateRequest newUser,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        return applyUpdate(id, newUser, ifMatch, prefer, true);
+    }
+
+    // Modifie les champs fournis d'un utilisateur (nécessite rôle ADMIN uniquement)
+    // Un seul UPDATE, sans chargement de l'entité (précédé de la lecture verrouillée de
+    // l'ancienne ligne si l'email ou le rôle change) : 204 par défaut, 404 si aucune
+    // ligne modifiée ; "Prefer: return=representation" renvoie l'utilisateur relu (200)
+    // If-Match : la modification n'est appliquée que si le client a la dernière
+    // version (412 sinon)
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<User> patchUser(@PathVariable Long id, @RequestBody UserUpdateRequest changes,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        return applyUpdate(id, changes, ifMatch, prefer, prefer != null && prefer.contains(RETURN_REPRESENTATION));
     }
 
     // Supprime un utilisateur par son ID (nécessite rôle ADMIN uniquement)
+    // Un seul DELETE ... RETURNING, sans lecture préalable : 200, ou 404 si absente
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
-            return ResponseEntity.ok().build();
+        Optional<UserIdEmailRole> deleted = repository.deleteRowById(id);
+        if (deleted.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        eventPublisher.publishEvent(UserChangedEvent.deleted(deleted.get()));
+        return ResponseEntity.ok().build();
+    }
+
+    // Supprime plusieurs utilisateurs (nécessite rôle ADMIN uniquement)
+    // Corps : {"ids": [...]} ou un filtre {"role": "USER", "q": "prefixe"} ; les
+    // suppressions sont faites par paquets, renvoie {"deleted": n}
+    @PostMapping("/bulk-delete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> bulkDeleteUsers(@RequestBody BulkDeleteRequest request) {
+        if (request.hasIds() == request.hasFilter()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide either ids or a filter (role, q)");
+        }
+        long deleted;
+        if (request.hasIds()) {
+            if (request.ids().size() > maxBulkDeleteIds) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "At most " + maxBulkDeleteIds + " ids per request");
+            }
+            deleted = purgeService.deleteByIds(request.ids());
+        } else {
+            String role = request.role() != null && !request.role().isBlank() ? request.role().strip() : null;
+            String prefix = request.q() != null && !request.q().isBlank() ? likePrefix(request.q()) : null;
+            deleted = purgeService.deleteMatching(role, prefix);
+        }
+        return ResponseEntity.ok(Map.of("deleted", deleted));
+    }
+
+    // Applique PUT / PATCH en un seul UPDATE (plus la lecture de l'ancienne ligne si
+    // l'email ou le rôle change) ; le mot de passe n'est hashé que s'il est fourni
+    // representation : relit et renvoie l'utilisateur modifié (200) au lieu de 204
+    private ResponseEntity<User> applyUpdate(Long id, UserUpdateRequest changes, String ifMatch, String prefer,
+            boolean representation) {
+        Long expectedVersion = ifMatch != null ? UserEtags.expectedVersion(ifMatch) : null;
+        String passwordHash = null;
+        if (changes.password() != null && !changes.password().isEmpty()) {
+            passwordHash = passwordEncoder.encode(changes.password());
+        }
+        // Le rôle n'est modifié que s'il est fourni
+        String role = changes.role() != null && !changes.role().isEmpty() ? changes.role() : null;
+        UserUpdate update = new UserUpdate(changes.name(), changes.email(), passwordHash, role);
+        if (update.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No field to update");
+        }
+
+        Optional<UserIdEmailRole> previous = repository.updateFields(id, update, expectedVersion);
+        if (previous.isEmpty()) {
+            // Aucune ligne modifiée : utilisateur absent ou version différente de If-Match
+            if (expectedVersion != null && repository.existsById(id)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            return ResponseEntity.notFound().build();
+        }
+        // Invalide les caches de sécurité, révoque les tokens (voir TokenVersionRegistry)
+        // et déplace les compteurs de GET /users/stats de l'ancien rôle vers le nouveau
+        // (ancien email et ancien rôle null s'ils n'ont pas été lus)
+        eventPublisher.publishEvent(UserChangedEvent.updatedInPlace(id, update.email(), update.role(),
+                previous.get()));
+
+        if (representation) {
+            boolean preferred = prefer != null && prefer.contains(RETURN_REPRESENTATION);
+            return repository.findById(id)
+                    .map(user -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                .eTag(UserEtags.forUser(user.getVersion(), null));
+                        if (preferred) {
+                            response.header("Preference-Applied", RETURN_REPRESENTATION);
+                        }
+                        return response.body(user);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        // Nouvelle version connue seulement si le client a fourni la précédente
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+        if (expectedVersion != null && expectedVersion >= 0) {
+            response.eTag(UserEtags.forUser(expectedVersion + 1, null));
+        }
+        return response.build();
+    }
+
+    // Renvoie la page lue avec un élément de plus, tronquée à pageSize, et le curseur
+    // de la page suivante s'il reste des éléments ; etag peut être null
+    private static <T> ResponseEntity<List<T>> page(List<T> rows, int pageSize, ToLongFunction<T> idOf,
+            String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (rows.size() <= pageSize) {
+            return response.body(rows);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        return response
+                .header(NEXT_CURSOR_HEADER, UserCursor.encode(idOf.applyAsLong(page.get(pageSize - 1))))
+                .body(page);
+    }
+
+    // 304 sans corps, avec l'ETag courant
+    private static ResponseEntity<Void> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    // Lit ?fields=a,b,c ; null si absent (entité complète), 400 si un champ est inconnu
+    private static Set<String> parseFields(String fields) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> selected = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!UserRepositoryCustom.SELECTABLE_FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field '" + name + "', expected one of " + UserRepositoryCustom.SELECTABLE_FIELDS);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    // Motif LIKE "terme%" en minuscules, jokers échappés ; 400 si le terme est vide
+    // ou trop long
+    private static String likePrefix(String q) {
+        String term = q.strip();
+        if (term.isEmpty() || term.length() > MAX_SEARCH_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "q must contain between 1 and " + MAX_SEARCH_LENGTH + " characters");
+        }
+        return escapeLike(term.toLowerCase(Locale.ROOT)) + "%";
+    }
+
+    // Échappe les jokers de LIKE pour que % et _ soient cherchés littéralement
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Borne la taille de page demandée entre 1 et la limite du serveur
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
         }
-        return ResponseEntity.notFound().build();
+        return Math.min(limit, maxLimit);
     }
 }
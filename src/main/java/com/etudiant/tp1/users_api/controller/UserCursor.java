@@ -0,0 +1,43 @@
+package com.etudiant.tp1.users_api.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Encode / décode le curseur opaque utilisé pour la pagination par clé (keyset)
+// Le curseur contient le dernier id renvoyé, le client ne doit pas l'interpréter
+final class UserCursor {
+
+    private static final String PREFIX = "u:";
+
+    private UserCursor() {
+    }
+
+    // Transforme un id en curseur opaque (base64 url-safe)
+    static String encode(long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    // Retrouve l'id à partir du curseur, 0 si absent (première page)
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(raw);
+            }
+            long id = Long.parseLong(raw.substring(PREFIX.length()));
+            if (id < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
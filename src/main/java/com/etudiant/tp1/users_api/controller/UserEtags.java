@@ -0,0 +1,80 @@
+package com.etudiant.tp1.users_api.controller;
+
+import com.etudiant.tp1.users_api.model.UserPageVersion;
+import com.etudiant.tp1.users_api.repository.UserRepositoryCustom;
+
+import java.util.Set;
+
+// Construit les ETags des réponses utilisateur à partir de la colonne @Version
+// Le suffixe distingue les représentations partielles (?fields=) de l'entité complète
+// ETags faibles (W/"...") : Tomcat ne compresse pas une réponse qui porte un ETag
+// fort, dont la valeur désignerait sinon deux corps différents (brut et gzip)
+final class UserEtags {
+
+    private UserEtags() {
+    }
+
+    // ETag d'un utilisateur : W/"v<version>"
+    static String forUser(long version, Set<String> fields) {
+        return "W/\"v" + version + fieldsSuffix(fields) + "\"";
+    }
+
+    // ETag d'une page : W/"p<nombre>.<somme des versions>.<somme des ids>"
+    static String forPage(UserPageVersion page, Set<String> fields) {
+        return "W/\"p" + page.count() + "." + page.versionSum() + "." + page.idSum() + fieldsSuffix(fields) + "\"";
+    }
+
+    // Version attendue par un en-tête If-Match W/"v<version>" ou "v<version>"
+    // La version identifie exactement la ligne : la forme faible renvoyée par le
+    // serveur est acceptée. null pour "*" (toute version) ; -1 pour une valeur qui ne
+    // peut correspondre à aucune version (ETag de page ou de représentation partielle)
+    static Long expectedVersion(String ifMatch) {
+        String value = stripWeak(ifMatch.strip());
+        if (value.equals("*")) {
+            return null;
+        }
+        if (value.length() > 3 && value.startsWith("\"v") && value.endsWith("\"")) {
+            try {
+                return Long.parseLong(value.substring(2, value.length() - 1));
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+        return -1L;
+    }
+
+    // Vrai si l'en-tête If-None-Match contient l'ETag (comparaison faible) ou "*"
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = stripWeak(candidate.strip());
+            if (value.equals("*") || value.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Valeur entre guillemets, sans le préfixe W/ des ETags faibles
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // "" pour l'entité complète, "-email.role" pour une sélection (l'id, toujours
+    // présent, n'est pas répété)
+    private static String fieldsSuffix(Set<String> fields) {
+        if (fields == null) {
+            return "";
+        }
+        StringBuilder suffix = new StringBuilder("-");
+        for (String field : UserRepositoryCustom.SELECTABLE_FIELDS) {
+            if (!field.equals("id") && fields.contains(field)) {
+                if (suffix.length() > 1) {
+                    suffix.append('.');
+                }
+                suffix.append(field);
+            }
+        }
+        return suffix.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.etudiant.tp1.users_api.event;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+
+// Événement publié après chaque création, modification ou suppression d'un utilisateur
+// Permet aux caches et compteurs en mémoire de rester cohérents avec la base
+// email et role sont les valeurs écrites, previousEmail et previousRole celles lues
+// avant la modification ou la suppression ; null quand elles n'existent pas
+public record UserChangedEvent(Type type, Long userId, String email, String previousEmail,
+        String role, String previousRole) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static UserChangedEvent created(User user) {
+        return new UserChangedEvent(Type.CREATED, user.getId(), user.getEmail(), null, user.getRole(), null);
+    }
+
+    // Modification par UPDATE direct : email et role valent null s'ils ne sont pas
+    // écrits ; previous contient les valeurs lues avant l'UPDATE
+    public static UserChangedEvent updatedInPlace(Long userId, String email, String role,
+            UserIdEmailRole previous) {
+        return new UserChangedEvent(Type.UPDATED, userId, email, previous.email(), role, previous.role());
+    }
+
+    public static UserChangedEvent deleted(UserIdEmailRole user) {
+        return new UserChangedEvent(Type.DELETED, user.id(), null, user.email(), null, user.role());
+    }
+}
@@ -0,0 +1,5 @@
+package com.etudiant.tp1.users_api.model;
+
+// Nombre d'utilisateurs d'un rôle (COUNT ... GROUP BY role)
+public record RoleCount(String role, long count) {
+}
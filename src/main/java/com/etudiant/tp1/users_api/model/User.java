@@ -1,10 +1,23 @@
 package com.etudiant.tp1.users_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 // Entité représentant un utilisateur dans la base de données
+// Mise en cache de second niveau (région users) et résolution email -> id en cache
+// (région users-by-email), voir application.conf
+// Régions nommées : Caffeine lit caffeine.jcache.<région> comme un chemin HOCON, ce
+// que les noms par défaut (points, ##NaturalId) ne permettent pas
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")
 public class User {
     // Identifiant unique généré automatiquement (clé primaire)
     @Id
@@ -15,6 +28,8 @@ public class User {
     private String name;
 
     // Email de l'utilisateur, doit être unique dans la base
+    // Identifiant naturel modifiable : findByEmail passe par le cache des natural ids
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String email;
 
@@ -25,6 +40,21 @@ public class User {
     @Column(nullable = false)
     private String role = "USER"; // Valeur par défaut : USER
 
+    // Version des tokens JWT de l'utilisateur, incrémentée quand le rôle, l'email ou
+    // le mot de passe change : les tokens émis avec une version antérieure sont refusés
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    // Version de la ligne, incrémentée par Hibernate à chaque mise à jour
+    // Sert au verrouillage optimiste et aux ETags (If-None-Match / If-Match)
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     // Constructeur par défaut requis par JPA
     public User() {
     }
@@ -86,4 +116,24 @@ public class User {
     public void setRole(String role) {
         this.role = role;
     }
+
+    // Getter pour la version des tokens
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    // Setter pour la version des tokens
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
+    // Getter pour la version de la ligne
+    public long getVersion() {
+        return version;
+    }
+
+    // Setter pour la version de la ligne (réservé à JPA et aux tests)
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
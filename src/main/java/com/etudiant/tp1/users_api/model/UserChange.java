@@ -0,0 +1,15 @@
+package com.etudiant.tp1.users_api.model;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Données d'un événement du flux GET /users/changes
+// email et role ne sont présents que s'ils sont connus au moment de l'écriture
+// (absents pour une suppression, ou pour un champ inchangé par PUT/PATCH)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserChange(String type, Long id, String email, String role) {
+
+    public static UserChange of(UserChangedEvent event) {
+        return new UserChange(event.type().name().toLowerCase(), event.userId(), event.email(), event.role());
+    }
+}
@@ -0,0 +1,14 @@
+package com.etudiant.tp1.users_api.model;
+
+import java.util.Map;
+
+// Ligne lue avec une sélection de champs (?fields=) : valeurs renvoyées au client,
+// dans l'ordre de SELECTABLE_FIELDS, et version de la ligne lue dans la même requête
+// pour construire l'ETag
+public record UserFields(long version, Map<String, Object> values) {
+
+    // L'id fait toujours partie des valeurs (curseur de pagination)
+    public long id() {
+        return ((Number) values.get("id")).longValue();
+    }
+}
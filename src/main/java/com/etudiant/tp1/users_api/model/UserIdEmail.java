@@ -0,0 +1,5 @@
+package com.etudiant.tp1.users_api.model;
+
+// Projection légère (id, email) utilisée sans charger l'entité User complète
+public record UserIdEmail(Long id, String email) {
+}
@@ -0,0 +1,6 @@
+package com.etudiant.tp1.users_api.model;
+
+// Projection (id, email, rôle) d'une ligne lue juste avant sa modification ou sa
+// suppression, pour publier les anciennes valeurs dans UserChangedEvent
+public record UserIdEmailRole(Long id, String email, String role) {
+}
@@ -0,0 +1,31 @@
+package com.etudiant.tp1.users_api.model;
+
+import java.util.List;
+
+// Empreinte d'une page d'utilisateurs : nombre de lignes, somme des versions et
+// somme des ids. Toute création, suppression ou modification d'une ligne de la
+// page change au moins l'une des trois valeurs
+public record UserPageVersion(long count, long versionSum, long idSum) {
+
+    // Même calcul que UserRepository.findPageVersion, à partir des entités déjà lues
+    public static UserPageVersion of(List<User> users) {
+        long versionSum = 0;
+        long idSum = 0;
+        for (User user : users) {
+            versionSum += user.getVersion();
+            idSum += user.getId();
+        }
+        return new UserPageVersion(users.size(), versionSum, idSum);
+    }
+
+    // Même calcul à partir des lignes lues avec une sélection de champs
+    public static UserPageVersion ofFields(List<UserFields> rows) {
+        long versionSum = 0;
+        long idSum = 0;
+        for (UserFields row : rows) {
+            versionSum += row.version();
+            idSum += row.id();
+        }
+        return new UserPageVersion(rows.size(), versionSum, idSum);
+    }
+}
@@ -0,0 +1,9 @@
+package com.etudiant.tp1.users_api.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Réponse de GET /users/stats : total, répartition par rôle et date du dernier
+// recalage des compteurs sur la base
+public record UserStats(long total, Map<String, Long> byRole, Instant reconciledAt) {
+}
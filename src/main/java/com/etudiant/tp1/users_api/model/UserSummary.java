@@ -0,0 +1,6 @@
+package com.etudiant.tp1.users_api.model;
+
+// Projection renvoyée par la recherche : champs affichés dans une liste, sans le
+// mot de passe ni les colonnes internes
+public record UserSummary(Long id, String name, String email, String role) {
+}
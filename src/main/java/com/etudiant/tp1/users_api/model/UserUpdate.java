@@ -0,0 +1,10 @@
+package com.etudiant.tp1.users_api.model;
+
+// Champs à modifier par PUT / PATCH /users/{id} ; null = colonne inchangée
+// Le mot de passe est déjà hashé
+public record UserUpdate(String name, String email, String passwordHash, String role) {
+
+    public boolean isEmpty() {
+        return name == null && email == null && passwordHash == null && role == null;
+    }
+}
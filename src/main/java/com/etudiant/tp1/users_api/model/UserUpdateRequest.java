@@ -0,0 +1,7 @@
+package com.etudiant.tp1.users_api.model;
+
+// Corps de PUT / PATCH /users/{id} : champs absents du JSON = null = inchangés
+// Pas de valeur par défaut (contrairement à User.role) : un champ non fourni ne
+// doit jamais être écrit. Le mot de passe est en clair, hashé par le contrôleur
+public record UserUpdateRequest(String name, String email, String password, String role) {
+}
@@ -1,12 +1,90 @@
 package com.etudiant.tp1.users_api.repository;
 
+import com.etudiant.tp1.users_api.model.RoleCount;
 import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmail;
+import com.etudiant.tp1.users_api.model.UserPageVersion;
+import com.etudiant.tp1.users_api.model.UserSummary;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    // Recherche un utilisateur par son email, retourne un Optional<User>
-    Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+// Lectures en transaction readOnly (routées vers le réplica s'il est configuré) ;
+// les méthodes d'écriture et les lectures qui doivent voir le primaire redéclarent
+// @Transactional
+@Transactional(readOnly = true)
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    // Page suivante pour la pagination par clé : WHERE id > ? ORDER BY id LIMIT ?
+    // S'appuie sur l'index de la clé primaire, coût constant quelle que soit la page
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Empreinte de la page que renverrait findByIdGreaterThanOrderByIdAsc(id, limit),
+    // calculée en base sans charger les entités (GET /users conditionnel)
+    @Query("""
+            select new com.etudiant.tp1.users_api.model.UserPageVersion(
+                count(*), coalesce(sum(p.version), 0L), coalesce(sum(p.id), 0L))
+            from (select u.id as id, u.version as version from User u
+                  where u.id > :after order by u.id limit :limit) p""")
+    UserPageVersion findPageVersion(Long after, int limit);
+
+    // Version de la ligne seule, pour répondre 304 sans charger l'entité
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    // Parcours complet de la table en flux, lu par paquets de 1000 lignes côté JDBC
+    // Projection UserSummary : ni mot de passe ni colonnes internes, aucune entité dans
+    // le contexte de persistance ni dans le cache de second niveau
+    // Doit être consommé dans une transaction et fermé après usage
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.etudiant.tp1.users_api.model.UserSummary(u.id, u.name, u.email, u.role) from User u order by u.id")
+    Stream<UserSummary> streamAllSummaries();
+
+    // Version courante des tokens d'un utilisateur (révocation des JWT autoporteurs)
+    // Lue sur le primaire : une version en retard sur le réplica laisserait passer un
+    // token révoqué
+    @Transactional
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(Long id);
+
+    // Vrai si un utilisateur porte déjà cet email (création, après le filtre de Bloom)
+    boolean existsByEmail(String email);
+
+    // Tous les emails, en flux, pour remplir le filtre de Bloom au démarrage
+    // Doit être consommé dans une transaction et fermé après usage
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select u.email from User u where u.email is not null")
+    Stream<String> streamAllEmails();
+
+    // Parmi les emails donnés, ceux qui existent déjà (création en masse)
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    // Ids des utilisateurs correspondant aux emails, sans charger les entités
+    @Query("select new com.etudiant.tp1.users_api.model.UserIdEmail(u.id, u.email) from User u where u.email in :emails")
+    List<UserIdEmail> findIdsByEmailIn(Collection<String> emails);
+
+    // Nombre d'utilisateurs par rôle, pour le recalage des compteurs de GET /users/stats
+    @Query("select new com.etudiant.tp1.users_api.model.RoleCount(u.role, count(u)) from User u group by u.role")
+    List<RoleCount> countByRole();
+
+    // Recherche par préfixe (déjà en minuscules, jokers échappés) sur l'email ou le nom
+    // Utilise les index lower(email) / lower(name) de la migration V2 ;
+    // pagination par clé sur l'id comme findByIdGreaterThanOrderByIdAsc
+    @Query("""
+            select new com.etudiant.tp1.users_api.model.UserSummary(u.id, u.name, u.email, u.role)
+            from User u
+            where u.id > :after
+              and (lower(u.email) like :prefix escape '\\' or lower(u.name) like :prefix escape '\\')
+            order by u.id""")
+    List<UserSummary> searchByPrefix(String prefix, Long after, Limit limit);
+}
@@ -0,0 +1,50 @@
+package com.etudiant.tp1.users_api.repository;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserFields;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserUpdate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Lectures et écritures partielles de la table users : seules les colonnes
+// concernées sont lues ou écrites et aucune entité n'est chargée dans le contexte
+// de persistance
+public interface UserRepositoryCustom {
+
+    // Champs sélectionnables, dans l'ordre de sortie ; l'id est toujours renvoyé
+    List<String> SELECTABLE_FIELDS = List.of("id", "name", "email", "role");
+
+    // Recherche un utilisateur par son email (identifiant naturel), retourne un
+    // Optional<User> ; résolu par les caches de second niveau quand ils sont chauds
+    Optional<User> findByEmail(String email);
+
+    // Équivalent de findByIdGreaterThanOrderByIdAsc limité aux champs donnés (et à
+    // la version de chaque ligne)
+    List<UserFields> findFieldsByIdGreaterThan(Collection<String> fields, long afterId, int limit);
+
+    // Équivalent de findById limité aux champs donnés (et à la version de la ligne)
+    Optional<UserFields> findFieldsById(Collection<String> fields, long id);
+
+    // UPDATE des colonnes non nulles de changes ; seul un changement d'email ou de rôle
+    // le fait précéder de la lecture verrouillée des anciennes valeurs
+    // Incrémente version, et token_version si l'email, le rôle ou le mot de passe
+    // change ; expectedVersion non null ajoute "AND version = ?" (If-Match)
+    // Renvoie les anciennes valeurs (email et rôle null s'ils n'ont pas été lus), vide
+    // si aucune ligne modifiée (absente ou version différente)
+    Optional<UserIdEmailRole> updateFields(long id, UserUpdate changes, Long expectedVersion);
+
+    // Ids (triés, après afterId) des utilisateurs correspondant au filtre : rôle
+    // exact et/ou préfixe LIKE déjà échappé sur l'email ou le nom ; null = ignoré
+    List<Long> findIdsMatching(String role, String prefix, long afterId, int limit);
+
+    // DELETE ... WHERE id IN (...) des lignes qui vérifient encore le filtre, en une
+    // seule requête ; renvoie les lignes effectivement supprimées (RETURNING), triées par id
+    List<UserIdEmailRole> deleteByIdInMatching(Collection<Long> ids, String role, String prefix);
+
+    // Un seul DELETE, sans chargement de l'entité (contrairement à deleteById) ;
+    // renvoie la ligne supprimée, vide si absente
+    Optional<UserIdEmailRole> deleteRowById(long id);
+}
@@ -0,0 +1,292 @@
+package com.etudiant.tp1.users_api.repository;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserFields;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserUpdate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Requêtes Criteria (SELECT) et natives (UPDATE, DELETE) des seules lignes et
+// colonnes concernées
+@Transactional(readOnly = true)
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    // Alias de la version dans les projections (distinct des noms de champs)
+    private static final String VERSION_ALIAS = "_version";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // email -> id par le cache des natural ids, puis entité par le cache de l'entité ;
+    // une requête SQL seulement en cas d'absence
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(email);
+    }
+
+    @Override
+    public List<UserFields> findFieldsByIdGreaterThan(Collection<String> fields, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        List<String> selected = selectedFields(fields);
+        query.multiselect(selections(root, selected))
+                .where(cb.greaterThan(root.get("id"), afterId))
+                .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(tuple -> toFields(tuple, selected))
+                .toList();
+    }
+
+    @Override
+    public Optional<UserFields> findFieldsById(Collection<String> fields, long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        List<String> selected = selectedFields(fields);
+        query.multiselect(selections(root, selected))
+                .where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(query)
+                .getResultStream()
+                .findFirst()
+                .map(tuple -> toFields(tuple, selected));
+    }
+
+    @Override
+    @Transactional
+    public Optional<UserIdEmailRole> updateFields(long id, UserUpdate changes, Long expectedVersion) {
+        // Anciennes valeurs lues seulement si l'email ou le rôle change : l'ancien rôle
+        // pour les compteurs, l'ancien email pour sa résolution en cache. Ligne
+        // verrouillée (SELECT ... FOR UPDATE) : aucune écriture ne s'intercale avant l'UPDATE
+        UserIdEmailRole previous = null;
+        if (changes.email() != null || changes.role() != null) {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<UserIdEmailRole> query = cb.createQuery(UserIdEmailRole.class);
+            Root<User> row = query.from(User.class);
+            Predicate match = cb.equal(row.get("id"), id);
+            if (expectedVersion != null) {
+                match = cb.and(match, cb.equal(row.get("version"), expectedVersion));
+            }
+            query.select(cb.construct(UserIdEmailRole.class, row.get("id"), row.get("email"), row.get("role")))
+                    .where(match);
+            previous = entityManager.createQuery(query)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+            if (previous == null) {
+                return Optional.empty();
+            }
+        }
+
+        // Conditions de révocation des tokens, évaluées en base sur l'ancienne valeur
+        List<String> assignments = new ArrayList<>();
+        List<String> credentialsChanged = new ArrayList<>();
+        if (changes.name() != null) {
+            assignments.add("name = :name");
+        }
+        if (changes.email() != null) {
+            assignments.add("email = :email");
+            credentialsChanged.add("email <> :email");
+        }
+        if (changes.role() != null) {
+            assignments.add("role = :role");
+            credentialsChanged.add("role <> :role");
+        }
+        if (changes.passwordHash() != null) {
+            // Nouveau mot de passe : révocation inconditionnelle
+            assignments.add("password = :password");
+            assignments.add("token_version = token_version + 1");
+        } else if (!credentialsChanged.isEmpty()) {
+            assignments.add("token_version = token_version + case when "
+                    + String.join(" or ", credentialsChanged) + " then 1 else 0 end");
+        }
+        assignments.add("version = version + 1");
+
+        // Sans lecture préalable, 404 et 412 se décident sur le nombre de lignes modifiées
+        boolean checkVersion = previous == null && expectedVersion != null;
+        Query update = entityManager.createNativeQuery("update users set " + String.join(", ", assignments)
+                + " where id = :id" + (checkVersion ? " and version = :version" : "") + " returning id");
+        update.setParameter("id", id);
+        if (checkVersion) {
+            update.setParameter("version", expectedVersion);
+        }
+        if (changes.name() != null) {
+            update.setParameter("name", changes.name());
+        }
+        if (changes.email() != null) {
+            update.setParameter("email", changes.email());
+        }
+        if (changes.role() != null) {
+            update.setParameter("role", changes.role());
+        }
+        if (changes.passwordHash() != null) {
+            update.setParameter("password", changes.passwordHash());
+        }
+        // L'ancien et le nouvel email : la résolution email -> id change avec l'email
+        lockCacheEntries(id, previous != null ? previous.email() : null, changes.email());
+        if (update.getResultList().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(previous != null ? previous : new UserIdEmailRole(id, null, null));
+    }
+
+    @Override
+    public List<Long> findIdsMatching(String role, String prefix, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        Predicate where = cb.and(cb.greaterThan(root.get("id"), afterId), filter(cb, root, role, prefix));
+        query.select(root.get("id"))
+                .where(where)
+                .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public List<UserIdEmailRole> deleteByIdInMatching(Collection<Long> ids, String role, String prefix) {
+        // Le filtre est réévalué par le DELETE lui-même : une ligne modifiée depuis la
+        // sélection des ids n'est pas supprimée, RETURNING donne exactement les autres
+        StringBuilder sql = new StringBuilder("delete from users where id in (:ids)");
+        if (role != null) {
+            sql.append(" and role = :role");
+        }
+        if (prefix != null) {
+            sql.append(" and (lower(email) like :prefix escape '\\' or lower(name) like :prefix escape '\\')");
+        }
+        sql.append(" returning id, email, role");
+        Query delete = entityManager.createNativeQuery(sql.toString()).setParameter("ids", ids);
+        if (role != null) {
+            delete.setParameter("role", role);
+        }
+        if (prefix != null) {
+            delete.setParameter("prefix", prefix);
+        }
+        List<UserIdEmailRole> deleted = new ArrayList<>();
+        for (Object result : delete.getResultList()) {
+            Object[] row = (Object[]) result;
+            deleted.add(new UserIdEmailRole(((Number) row[0]).longValue(), (String) row[1], (String) row[2]));
+        }
+        deleted.sort(Comparator.comparing(UserIdEmailRole::id));
+        for (UserIdEmailRole user : deleted) {
+            lockCacheEntries(user.id(), user.email());
+        }
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public Optional<UserIdEmailRole> deleteRowById(long id) {
+        return deleteByIdInMatching(List.of(id), null, null).stream().findFirst();
+    }
+
+    // Verrouille jusqu'à la fin de la transaction les entrées de cache de second niveau
+    // d'une ligne modifiée ou supprimée : l'entité (par id) et la résolution de ses
+    // emails. Une lecture concurrente ne peut pas y remettre l'ancienne ligne, la
+    // suivante relit la base ; les autres utilisateurs restent en cache.
+    // UPDATE et DELETE sont des requêtes natives lues par getResultList (RETURNING) :
+    // Hibernate ne vide donc pas les régions entières comme après un UPDATE/DELETE JPQL
+    private void lockCacheEntries(Long id, String... emails) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(User.class);
+        List<Runnable> unlocks = new ArrayList<>();
+        EntityDataAccess entityAccess = persister.getCacheAccessStrategy();
+        if (entityAccess != null) {
+            Object key = entityAccess.generateCacheKey(id, persister, session.getFactory(),
+                    session.getTenantIdentifier());
+            SoftLock lock = entityAccess.lockItem(session, key, null);
+            unlocks.add(() -> entityAccess.unlockItem(session, key, lock));
+        }
+        NaturalIdDataAccess naturalIdAccess = persister.getNaturalIdCacheAccessStrategy();
+        if (naturalIdAccess != null) {
+            for (String email : emails) {
+                if (email != null) {
+                    Object key = naturalIdAccess.generateCacheKey(
+                            persister.getNaturalIdMapping().normalizeInput(email), persister, session);
+                    SoftLock lock = naturalIdAccess.lockItem(session, key, null);
+                    unlocks.add(() -> naturalIdAccess.unlockItem(session, key, lock));
+                }
+            }
+        }
+        if (!unlocks.isEmpty()) {
+            session.getActionQueue().registerProcess((success, s) -> unlocks.forEach(Runnable::run));
+        }
+    }
+
+    // Rôle exact et préfixe (email ou nom, insensible à la casse) ; conjonction vide
+    // (toujours vraie) si aucun critère
+    private static Predicate filter(CriteriaBuilder cb, Root<User> root, String role, String prefix) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (role != null) {
+            predicates.add(cb.equal(root.get("role"), role));
+        }
+        if (prefix != null) {
+            predicates.add(cb.or(
+                    cb.like(cb.lower(root.get("email")), prefix, '\\'),
+                    cb.like(cb.lower(root.get("name")), prefix, '\\')));
+        }
+        return cb.and(predicates.toArray(Predicate[]::new));
+    }
+
+    // Champs demandés, filtrés sur la liste autorisée et remis dans l'ordre de
+    // SELECTABLE_FIELDS ; l'id est toujours inclus (curseur de pagination)
+    private static List<String> selectedFields(Collection<String> fields) {
+        List<String> selected = new ArrayList<>();
+        for (String field : SELECTABLE_FIELDS) {
+            if (field.equals("id") || fields.contains(field)) {
+                selected.add(field);
+            }
+        }
+        return selected;
+    }
+
+    // Champs demandés suivis de la version (ETag), lue dans la même requête
+    private static List<Selection<?>> selections(Root<User> root, List<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        selections.add(root.get("version").alias(VERSION_ALIAS));
+        return selections;
+    }
+
+    private static UserFields toFields(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, tuple.get(field));
+        }
+        return new UserFields(tuple.get(VERSION_ALIAS, Long.class), row);
+    }
+}
@@ -0,0 +1,35 @@
+package com.etudiant.tp1.users_api.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// Détails d'un utilisateur authentifié, enrichis de son id, de son rôle et de la
+// version de ses tokens pour pouvoir émettre un JWT autoporteur à la connexion
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final String role;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(Long id, String email, String password, String role, int tokenVersion,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
@@ -0,0 +1,32 @@
+package com.etudiant.tp1.users_api.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// PasswordEncoder qui délègue les calculs coûteux au pool PasswordHashingExecutor
+// Utilisé partout où le bean PasswordEncoder est injecté : connexion (via
+// l'AuthenticationManager), création et modification d'utilisateurs
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
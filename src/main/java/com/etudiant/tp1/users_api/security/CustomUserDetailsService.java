@@ -1,15 +1,33 @@
 package com.etudiant.tp1.users_api.security;
 
+import com.etudiant.tp1.users_api.config.DataSourceRouting;
+import com.etudiant.tp1.users_api.config.ReadYourWritesTracker;
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
 import com.etudiant.tp1.users_api.model.User;
 import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -17,22 +35,123 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    // Cache borné (taille + durée de vie) devant findByEmail, appelé à chaque requête
+    // authentifiée par JwtAuthenticationFilter
+    @Value("${auth.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${auth.user-cache.ttl:60s}")
+    private Duration cacheTtl;
+
+    private Cache<String, CachedUser> cache;
+
+    // Email de l'entrée en cache par id, pour invalider en O(1) quand seul l'id est
+    // connu (suppression, modification par UPDATE direct)
+    private final Map<Long, String> emailsById = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Présent seulement avec un réplica (ReplicaDataSourceConfig) : un utilisateur
+    // modifié récemment est relu sur le primaire
+    @Autowired(required = false)
+    private ReadYourWritesTracker writeTracker;
+
+    // Durée de la requête findByEmail (miss du cache)
+    private Timer lookupTimer;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                // Appelé de façon synchrone lors des évictions (taille, expiration)
+                .evictionListener((String email, CachedUser user, RemovalCause cause) -> {
+                    if (user != null) {
+                        emailsById.remove(user.id(), email);
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+        this.lookupTimer = Timer.builder("auth.user.lookup")
+                .description("Chargement d'un utilisateur par email en base")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     // Méthode appelée par Spring Security pour récupérer un utilisateur par son
     // email
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        // Recherche l'utilisateur par email, lève une exception si non trouvé
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+        // Cherche d'abord dans le cache, sinon en base (une exception n'est pas mise en cache)
+        CachedUser user = cache.get(email, this::loadFromDatabase);
 
         // Crée une autorité (rôle) à partir du champ role de l'utilisateur
         // Spring Security nécessite le préfixe "ROLE_"
-        SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.getRole());
+        SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.role());
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword() != null ? user.getPassword() : "password",
+        // Nouvelle instance à chaque appel : Spring Security efface le mot de passe
+        // de l'objet après authentification, il ne doit pas être partagé via le cache
+        return new AuthenticatedUser(
+                user.id(),
+                user.email(),
+                user.password() != null ? user.password() : "password",
+                user.role(),
+                user.tokenVersion(),
                 Collections.singletonList(authority) // Liste contenant le rôle
         );
     }
+
+    // Statistiques du cache (hits, misses, évictions)
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    // Invalide les entrées concernées dès qu'un utilisateur change, pour qu'un
+    // utilisateur supprimé ou rétrogradé ne reste pas autorisé jusqu'à l'expiration
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.email() != null) {
+            evict(event.email());
+        }
+        if (event.previousEmail() != null) {
+            evict(event.previousEmail());
+        }
+        // Ancien email inconnu : on retrouve l'entrée par son id
+        if (event.type() != UserChangedEvent.Type.CREATED && event.previousEmail() == null
+                && event.userId() != null) {
+            String cachedEmail = emailsById.get(event.userId());
+            if (cachedEmail != null) {
+                evict(cachedEmail);
+                if (writeTracker != null) {
+                    writeTracker.recordWrite(cachedEmail);
+                }
+            }
+        }
+    }
+
+    private void evict(String email) {
+        CachedUser removed = cache.asMap().remove(email);
+        if (removed != null) {
+            emailsById.remove(removed.id(), email);
+        }
+    }
+
+    private CachedUser loadFromDatabase(String email) {
+        // Recherche l'utilisateur par email, lève une exception si non trouvé
+        Supplier<Optional<User>> lookup = () -> lookupTimer.record(() -> userRepository.findByEmail(email));
+        // Utilisateur modifié récemment : lu sur le primaire, le réplica peut être en retard
+        boolean recentlyChanged = writeTracker != null && writeTracker.recentlyWrote(email);
+        User user = (recentlyChanged ? DataSourceRouting.onPrimary(lookup) : lookup.get())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+        // Indexé avant d'être visible dans le cache (chargement atomique pour cet email)
+        emailsById.put(user.getId(), email);
+        return new CachedUser(user.getId(), user.getEmail(), user.getPassword(), user.getRole(),
+                user.getTokenVersion());
+    }
+
+    // Données immuables conservées dans le cache
+    private record CachedUser(Long id, String email, String password, String role, int tokenVersion) {
+    }
 }
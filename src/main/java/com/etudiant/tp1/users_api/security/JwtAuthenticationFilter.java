@@ -1,11 +1,18 @@
 package com.etudiant.tp1.users_api.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -14,17 +21,53 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 // Filtre qui s'exécute à chaque requête pour vérifier la présence et la validité du JWT
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Résultats possibles du filtre, tag "outcome" de la métrique auth.jwt.filter
+    private static final String OUTCOME_AUTHENTICATED = "authenticated";
+    private static final String OUTCOME_INVALID = "invalid";
+    private static final String OUTCOME_REVOKED = "revoked";
+    private static final String OUTCOME_UNKNOWN_USER = "unknown_user";
+    private static final String OUTCOME_SKIPPED = "skipped";
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    // Mode autoporteur : l'authentification est construite à partir des claims du
+    // token (rôle + version), sans lecture de l'utilisateur en base
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> filterTimers = new HashMap<>();
+
+    // Initialise un timer par résultat possible (évite toute création à la volée)
+    @PostConstruct
+    public void initMetrics() {
+        for (String outcome : List.of(OUTCOME_AUTHENTICATED, OUTCOME_INVALID, OUTCOME_REVOKED,
+                OUTCOME_UNKNOWN_USER, OUTCOME_SKIPPED)) {
+            filterTimers.put(outcome, Timer.builder("auth.jwt.filter")
+                    .description("Temps passé dans JwtAuthenticationFilter (hors reste de la chaîne)")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
     // Méthode principale du filtre, appelée à chaque requête HTTP
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -33,8 +76,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Récupère l'en-tête Authorization de la requête
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
 
         // Si l'en-tête est absent ou ne commence pas par "Bearer ", on passe au filtre
         // suivant
@@ -43,35 +84,79 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        // Extrait le token JWT de l'en-tête
-        jwt = authHeader.substring(7);
-        // Extrait l'email (username) à partir du JWT
-        userEmail = jwtService.extractUsername(jwt);
-
-        // Si l'email est présent et qu'aucune authentification n'est déjà définie dans
-        // le contexte
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                // Charge les détails de l'utilisateur
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                // Si le token est expiré, on passe au filtre suivant sans authentifier
-                if (jwtService.isTokenExpired(jwt)) {
-                    filterChain.doFilter(request, response);
-                    return;
-                }
-                // Crée un objet d'authentification et le place dans le contexte de sécurité
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails,
-                        null,
-                        userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            } catch (Exception e) {
-                // Si l'utilisateur n'existe plus, on continue sans authentifier
-                // Le token est invalide mais on ne bloque pas la requête
-            }
-        }
+        // Extrait le token JWT de l'en-tête et authentifie la requête, en mesurant
+        // uniquement le travail du filtre
+        Timer.Sample sample = Timer.start();
+        String outcome = authenticateBearer(authHeader.substring(7), request);
+        sample.stop(filterTimers.get(outcome));
+
         // Passe au filtre suivant dans la chaîne
         filterChain.doFilter(request, response);
     }
+
+    // Vérifie le token et place l'authentification dans le contexte de sécurité
+    // Renvoie le résultat, utilisé comme tag de la métrique
+    private String authenticateBearer(String jwt, HttpServletRequest request) {
+        final Claims claims;
+        try {
+            // Vérifie la signature et l'expiration une seule fois et récupère les claims
+            claims = jwtService.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token invalide ou expiré : on continue sans authentifier
+            return OUTCOME_INVALID;
+        }
+        // Extrait l'email (username) à partir des claims
+        final String userEmail = claims.getSubject();
+
+        // Si l'email est absent ou qu'une authentification est déjà définie dans le
+        // contexte, il n'y a rien à faire
+        if (userEmail == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return OUTCOME_SKIPPED;
+        }
+        try {
+            UsernamePasswordAuthenticationToken authToken = authenticate(claims, userEmail);
+            // null : token révoqué (version dépassée), on n'authentifie pas
+            if (authToken == null) {
+                return OUTCOME_REVOKED;
+            }
+            // Place l'objet d'authentification dans le contexte de sécurité
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            return OUTCOME_AUTHENTICATED;
+        } catch (Exception e) {
+            // Si l'utilisateur n'existe plus, on continue sans authentifier
+            // Le token est invalide mais on ne bloque pas la requête
+            return OUTCOME_UNKNOWN_USER;
+        }
+    }
+
+    // Construit l'authentification à partir des claims vérifiés du token
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims, String userEmail) {
+        Long userId = claims.get(JwtService.CLAIM_USER_ID, Long.class);
+        String role = claims.get(JwtService.CLAIM_ROLE, String.class);
+        Integer tokenVersion = claims.get(JwtService.CLAIM_TOKEN_VERSION, Integer.class);
+
+        if (statelessEnabled && userId != null && role != null && tokenVersion != null) {
+            // Mode autoporteur : le rôle vient du token, seule la version est contrôlée
+            // (en mémoire) pour tenir compte des révocations
+            if (!tokenVersionRegistry.isCurrent(userId, tokenVersion)) {
+                return null;
+            }
+            return new UsernamePasswordAuthenticationToken(userEmail, null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        }
+
+        // Charge les détails de l'utilisateur
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+
+        // Token émis avant un changement de rôle ou de mot de passe : refusé
+        if (tokenVersion != null && userDetails instanceof AuthenticatedUser user
+                && user.getTokenVersion() != tokenVersion) {
+            return null;
+        }
+        // Crée un objet d'authentification
+        return new UsernamePasswordAuthenticationToken(userDetails,
+                null,
+                userDetails.getAuthorities());
+    }
 }
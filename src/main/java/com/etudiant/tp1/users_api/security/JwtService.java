@@ -1,17 +1,30 @@
 package com.etudiant.tp1.users_api.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
@@ -23,18 +36,67 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}")
     private long expirationTime;
 
+    // Cache optionnel des claims déjà vérifiés, indexé par l'empreinte SHA-256 du token
+    @Value("${jwt.claims-cache.enabled:true}")
+    private boolean claimsCacheEnabled;
+
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private SecretKey secretKey;
 
+    // Parser immuable et thread-safe, construit une seule fois
+    private JwtParser parser;
+
+    // null si le cache est désactivé
+    private Cache<String, Claims> claimsCache;
+
+    // Durée de la vérification de signature, selon le résultat
+    private Timer validTokenTimer;
+    private Timer invalidTokenTimer;
+
     @PostConstruct
     public void init() {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        if (claimsCacheEnabled) {
+            // Chaque entrée expire en même temps que le token correspondant
+            this.claimsCache = Caffeine.newBuilder()
+                    .maximumSize(claimsCacheMaxSize)
+                    .expireAfter(Expiry.creating((String digest, Claims claims) -> timeToLive(claims)))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwtClaims");
+        }
+        this.validTokenTimer = verifyTimer("valid");
+        this.invalidTokenTimer = verifyTimer("invalid");
     }
 
+    // Noms des claims ajoutés aux tokens autoporteurs
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     public String generateToken(String username) {
         Map<String, Object> claims = new HashMap<>();
         return createToken(claims, username);
     }
 
+    // Token autoporteur : embarque l'id, le rôle et la version des tokens pour que le
+    // filtre puisse authentifier la requête sans relire l'utilisateur en base
+    public String generateToken(AuthenticatedUser user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        return createToken(claims, user.getUsername());
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .claims(claims)
@@ -45,6 +107,22 @@ public class JwtService {
                 .compact();
     }
 
+    // Vérifie la signature et l'expiration du token en une seule passe et renvoie
+    // ses claims. Un token déjà vérifié est servi depuis le cache sans recalcul HMAC
+    // Lève une JwtException si le token est invalide ou expiré
+    public Claims parseToken(String token) {
+        if (claimsCache == null) {
+            return extractAllClaims(token);
+        }
+        String digest = digest(token);
+        Claims claims = claimsCache.getIfPresent(digest);
+        if (claims == null) {
+            claims = extractAllClaims(token);
+            claimsCache.put(digest, claims);
+        }
+        return claims;
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -54,19 +132,54 @@ public class JwtService {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        long start = System.nanoTime();
+        try {
+            Claims claims = parser
+                    .parseSignedClaims(token)
+                    .getPayload();
+            validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (RuntimeException e) {
+            invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer verifyTimer(String outcome) {
+        return Timer.builder("auth.jwt.verify")
+                .description("Parsing et vérification HMAC d'un token (hors cache)")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
+
+    // Durée de vie restante du token, pour l'expiration de l'entrée en cache
+    private static Duration timeToLive(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return Duration.ZERO;
+        }
+        long remaining = expiration.getTime() - System.currentTimeMillis();
+        return Duration.ofMillis(Math.max(0, remaining));
+    }
+
+    // Empreinte du token : évite de garder les tokens bruts en mémoire
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package com.etudiant.tp1.users_api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limitation des tentatives de connexion par email et par adresse IP, appliquée avant
+// l'AuthenticationManager : une attaque par bourrage d'identifiants ne coûte ni requête
+// en base ni calcul BCrypt une fois la limite atteinte.
+// Chaque clé est un seau à jetons (capacité = rafale, un jeton rendu par période) codé
+// en GCRA : un seul long par clé, mis à jour par compare-and-set, sans verrou.
+// Les clés sont gardées dans un cache Caffeine borné ; une clé inactive assez longtemps
+// pour que son seau soit plein est expirée, ce qui équivaut à un seau neuf.
+@Component
+public class LoginThrottle {
+
+    @Value("${auth.login-throttle.enabled:true}")
+    private boolean enabled;
+
+    // Par email : 5 tentatives d'affilée, puis une toutes les 12 s (5/min)
+    @Value("${auth.login-throttle.email.capacity:5}")
+    private int emailCapacity;
+
+    @Value("${auth.login-throttle.email.refill-period:12s}")
+    private Duration emailRefillPeriod;
+
+    // Par IP : plus large, plusieurs utilisateurs peuvent partager une adresse (NAT)
+    @Value("${auth.login-throttle.ip.capacity:30}")
+    private int ipCapacity;
+
+    @Value("${auth.login-throttle.ip.refill-period:1s}")
+    private Duration ipRefillPeriod;
+
+    // Nombre maximal de clés suivies par type (environ 100 octets par clé)
+    @Value("${auth.login-throttle.max-keys:100000}")
+    private long maxKeys;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Horloge des seaux et des expirations, remplaçable dans les tests
+    Ticker ticker = Ticker.systemTicker();
+
+    private Limiter byEmail;
+    private Limiter byIp;
+
+    @PostConstruct
+    public void init() {
+        this.byIp = new Limiter("ip", ipCapacity, ipRefillPeriod);
+        this.byEmail = new Limiter("email", emailCapacity, emailRefillPeriod);
+    }
+
+    // Consomme un jeton pour l'IP puis pour l'email, ou lève LoginThrottledException.
+    // L'IP est vérifiée d'abord : une IP bloquée ne consomme pas les jetons de l'email visé
+    public void acquire(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        if (clientIp != null) {
+            byIp.acquire(clientIp);
+        }
+        if (email != null && !email.isBlank()) {
+            byEmail.acquire(email.strip().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    // Seaux d'un type de clé
+    private final class Limiter {
+
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final Counter rejected;
+
+        Limiter(String key, int capacity, Duration refillPeriod) {
+            this.intervalNanos = refillPeriod.toNanos();
+            this.burstNanos = intervalNanos * capacity;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(burstNanos, TimeUnit.NANOSECONDS)
+                    .ticker(ticker)
+                    .build();
+            this.rejected = Counter.builder("auth.login.throttled")
+                    .description("Tentatives de connexion refusées (429)")
+                    .tag("key", key)
+                    .register(meterRegistry);
+            Gauge.builder("auth.login.throttle.keys", buckets, Cache::estimatedSize)
+                    .description("Clés suivies par le limiteur de connexions")
+                    .tag("key", key)
+                    .register(meterRegistry);
+        }
+
+        void acquire(String key) {
+            // Instant théorique d'arrivée (TAT) : Long.MIN_VALUE pour un seau plein
+            AtomicLong tat = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+            long now = ticker.read();
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long waitNanos = next - burstNanos - now;
+                if (waitNanos > 0) {
+                    rejected.increment();
+                    long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                    throw new LoginThrottledException("Too many login attempts, retry later", retryAfter);
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+}
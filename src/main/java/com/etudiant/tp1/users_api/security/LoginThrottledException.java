@@ -0,0 +1,17 @@
+package com.etudiant.tp1.users_api.security;
+
+// Levée quand une tentative de connexion dépasse la limite de son email ou de son
+// adresse IP : refusée (429) avant toute lecture en base ou tout calcul BCrypt
+public class LoginThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,29 @@
+package com.etudiant.tp1.users_api.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+// Reconnaît les requêtes reçues sur le port de gestion (management.server.port)
+// Le port effectif n'est connu qu'au démarrage du serveur de gestion (port 0 en test) ;
+// si l'actuator partage le port de l'application, aucune requête ne correspond
+@Component
+public class ManagementPortMatcher implements RequestMatcher {
+
+    private volatile int port = -1;
+
+    // Publié aussi par le contexte enfant du serveur de gestion (espace "management")
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if ("management".equals(event.getApplicationContext().getServerNamespace())) {
+            port = event.getWebServer().getPort();
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return port > 0 && request.getLocalPort() == port;
+    }
+}
@@ -0,0 +1,17 @@
+package com.etudiant.tp1.users_api.security;
+
+// Levée quand le pool de hashage des mots de passe est saturé : la requête est
+// refusée immédiatement (503) au lieu d'occuper un thread du serveur
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
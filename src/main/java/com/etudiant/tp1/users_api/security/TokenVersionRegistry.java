@@ -0,0 +1,70 @@
+package com.etudiant.tp1.users_api.security;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Table en mémoire id utilisateur -> version courante des tokens
+// Permet de révoquer un JWT autoporteur sans relire l'utilisateur à chaque requête :
+// la base n'est lue qu'au premier passage d'un utilisateur ou après une modification
+@Component
+public class TokenVersionRegistry {
+
+    // Version réservée aux utilisateurs supprimés : aucun token ne correspond
+    private static final int REVOKED = -1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.stateless.version-cache-size:100000}")
+    private long maxSize;
+
+    // Relecture périodique, au cas où la version aurait changé sur une autre instance
+    @Value("${jwt.stateless.version-ttl:5m}")
+    private Duration ttl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LoadingCache<Long, Integer> versions;
+
+    @PostConstruct
+    public void init() {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(id -> userRepository.findTokenVersionById(id).orElse(REVOKED));
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "tokenVersions");
+    }
+
+    // Vrai si la version portée par le token est la version courante de l'utilisateur
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        return tokenVersion != REVOKED && versions.get(userId) == tokenVersion;
+    }
+
+    // Une modification relit la version en base au prochain passage, une suppression
+    // révoque immédiatement tous les tokens de l'utilisateur
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        switch (event.type()) {
+            case UPDATED -> versions.invalidate(event.userId());
+            case DELETED -> versions.put(event.userId(), REVOKED);
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.etudiant.tp1.users_api.service;
+
+// Résultat de la création d'un élément d'un lot (POST /users/batch)
+// index : position de l'élément dans la requête
+public record BatchItemResult(int index, Status status, Long id, String email, String message) {
+
+    public enum Status {
+        CREATED, CONFLICT, INVALID
+    }
+
+    static BatchItemResult created(int index, Long id, String email) {
+        return new BatchItemResult(index, Status.CREATED, id, email, null);
+    }
+
+    static BatchItemResult conflict(int index, String email) {
+        return new BatchItemResult(index, Status.CONFLICT, null, email, "Email already exists");
+    }
+
+    static BatchItemResult invalid(int index, String email, String message) {
+        return new BatchItemResult(index, Status.INVALID, null, email, message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.etudiant.tp1.users_api.service;
+
+import java.util.List;
+
+// Corps de POST /users/bulk-delete : soit une liste d'ids, soit un filtre
+// (rôle exact et/ou préfixe d'email ou de nom, comme GET /users/search)
+public record BulkDeleteRequest(List<Long> ids, String role, String q) {
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    public boolean hasFilter() {
+        return (role != null && !role.isBlank()) || (q != null && !q.isBlank());
+    }
+}
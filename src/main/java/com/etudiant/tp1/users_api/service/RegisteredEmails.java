@@ -0,0 +1,130 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+// Pré-contrôle d'unicité des emails à l'inscription (POST /users)
+// Un filtre de Bloom des emails existants, rempli au démarrage puis à chaque création
+// ou changement d'email, répond « absent à coup sûr » sans requête dans la grande
+// majorité des inscriptions ; seuls les emails « peut-être présents » passent par
+// existsByEmail. Tant que le chargement n'est pas terminé, tout email est vérifié
+@Service
+public class RegisteredEmails {
+
+    private static final Logger log = LoggerFactory.getLogger(RegisteredEmails.class);
+
+    @Value("${users.email-filter.enabled:true}")
+    private boolean enabled;
+
+    // Nombre d'emails prévu : au-delà, le taux de faux positifs augmente
+    @Value("${users.email-filter.expected-emails:1000000}")
+    private long expectedEmails;
+
+    @Value("${users.email-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private UserRepository repository;
+
+    // Transaction en lecture-écriture : le chargement lit le primaire, pas un réplica en retard
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private EmailBloomFilter filter;
+    private volatile boolean ready;
+
+    private Counter absentCounter;
+    private Counter duplicateCounter;
+    private Counter falsePositiveCounter;
+    private Counter notReadyCounter;
+
+    @PostConstruct
+    public void init() {
+        this.filter = new EmailBloomFilter(expectedEmails, falsePositiveRate);
+        this.absentCounter = checkCounter("absent");
+        this.duplicateCounter = checkCounter("duplicate");
+        this.falsePositiveCounter = checkCounter("false_positive");
+        this.notReadyCounter = checkCounter("not_ready");
+    }
+
+    // Chargement en arrière-plan pour ne pas retarder le démarrage ; les créations
+    // concurrentes sont ajoutées par onUserChanged dans le même filtre
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::loadEmails, "email-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Vrai si un utilisateur porte déjà cet email (comparaison exacte, comme la contrainte
+    // d'unicité) ; n'interroge la base que si le filtre ne peut pas l'exclure
+    public boolean exists(String email) {
+        if (!enabled || !ready) {
+            notReadyCounter.increment();
+            return repository.existsByEmail(email);
+        }
+        if (!filter.mightContain(email)) {
+            absentCounter.increment();
+            return false;
+        }
+        boolean exists = repository.existsByEmail(email);
+        (exists ? duplicateCounter : falsePositiveCounter).increment();
+        return exists;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() != UserChangedEvent.Type.DELETED && event.email() != null) {
+            filter.put(event.email());
+        }
+    }
+
+    private void loadEmails() {
+        long start = System.nanoTime();
+        try {
+            long count = transactionTemplate.execute(status -> {
+                try (Stream<String> emails = repository.streamAllEmails()) {
+                    return emails.mapToLong(email -> {
+                        filter.put(email);
+                        return 1;
+                    }).sum();
+                }
+            });
+            ready = true;
+            log.info("Email filter loaded with {} emails in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+            if (count > expectedEmails) {
+                log.warn("Email filter holds {} emails, more than users.email-filter.expected-emails={}: "
+                        + "false positives will exceed {}", count, expectedEmails, falsePositiveRate);
+            }
+        } catch (RuntimeException e) {
+            // Le filtre reste inactif : chaque inscription vérifie l'email en base
+            log.warn("Email filter could not be loaded, falling back to existsByEmail", e);
+        }
+    }
+
+    private Counter checkCounter(String result) {
+        return Counter.builder("users.email.precheck")
+                .description("Pré-contrôles d'email à l'inscription par résultat")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,219 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmail;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Création d'utilisateurs en masse (onboarding d'un client)
+// Les INSERT passent par JdbcTemplate.batchUpdate : un vrai batch JDBC envoyé en un
+// aller-retour par paquet, ce que Hibernate désactive pour les ids IDENTITY
+@Service
+public class UserBatchService {
+
+    private static final String INSERT_SQL = "INSERT INTO users (name, email, password, role) VALUES (?, ?, ?, ?)";
+
+    // Taille maximale d'une clause IN envoyée à la base
+    private static final int IN_CLAUSE_SIZE = 1000;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Nombre de lignes par batch JDBC (et par transaction)
+    @Value("${users.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    // Hashages BCrypt soumis en même temps par l'ensemble des créations en masse
+    // Reste sous la capacité de la file du pool BCrypt : un lot ne la sature pas
+    @Value("${users.batch.hashing-parallelism:4}")
+    private int hashingParallelism;
+
+    private ExecutorService hashingExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hashingExecutor = Executors.newFixedThreadPool(hashingParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-hashing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdownNow();
+    }
+
+    // Crée les utilisateurs et renvoie un résultat par élément, dans l'ordre de la requête
+    public List<BatchItemResult> createAll(List<User> users) {
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+
+        // 1. Validation et doublons à l'intérieur de la requête
+        List<Integer> candidates = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String email = user == null ? null : user.getEmail();
+            if (email == null || email.isBlank()) {
+                results[i] = BatchItemResult.invalid(i, email, "Email is required");
+            } else if (!seen.add(email)) {
+                results[i] = BatchItemResult.conflict(i, email);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        // 2. Emails déjà présents en base : un SELECT par paquet au lieu d'une
+        // violation de contrainte par ligne
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : chunks(emailsOf(users, candidates), IN_CLAUSE_SIZE)) {
+            existing.addAll(repository.findExistingEmails(chunk));
+        }
+        List<Integer> toInsert = new ArrayList<>();
+        for (int i : candidates) {
+            String email = users.get(i).getEmail();
+            if (existing.contains(email)) {
+                results[i] = BatchItemResult.conflict(i, email);
+            } else {
+                toInsert.add(i);
+            }
+        }
+
+        // 3. Hashage BCrypt sur un pool borné (coûteux en CPU, indépendant de la base)
+        // Les éléments attendent leur tour ici au lieu de remplir la file du pool BCrypt
+        List<Future<?>> hashes = new ArrayList<>(toInsert.size());
+        for (int i : toInsert) {
+            User user = users.get(i);
+            if (user.getPassword() != null && !user.getPassword().isEmpty()) {
+                hashes.add(hashingExecutor.submit(() -> user.setPassword(passwordEncoder.encode(user.getPassword()))));
+            }
+            if (user.getRole() == null || user.getRole().isEmpty()) {
+                user.setRole("USER");
+            }
+        }
+        awaitAll(hashes);
+
+        // 4. Insertion par batchs JDBC, une transaction par paquet
+        List<Integer> inserted = new ArrayList<>();
+        for (List<Integer> chunk : chunks(toInsert, jdbcBatchSize)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertBatch(users, chunk));
+                inserted.addAll(chunk);
+            } catch (DataIntegrityViolationException e) {
+                // Un email a été créé entre-temps par une autre requête : le paquet est
+                // annulé, on le rejoue ligne par ligne pour isoler les conflits
+                for (int i : chunk) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> insertBatch(users, List.of(i)));
+                        inserted.add(i);
+                    } catch (DataIntegrityViolationException conflict) {
+                        results[i] = BatchItemResult.conflict(i, users.get(i).getEmail());
+                    }
+                }
+            }
+        }
+
+        // 5. Récupère les ids générés via une projection (id, email)
+        Map<String, Integer> indexByEmail = new HashMap<>();
+        for (int i : inserted) {
+            indexByEmail.put(users.get(i).getEmail(), i);
+        }
+        for (List<String> chunk : chunks(emailsOf(users, inserted), IN_CLAUSE_SIZE)) {
+            for (UserIdEmail row : repository.findIdsByEmailIn(chunk)) {
+                int i = indexByEmail.get(row.email());
+                users.get(i).setId(row.id());
+                results[i] = BatchItemResult.created(i, row.id(), row.email());
+                eventPublisher.publishEvent(UserChangedEvent.created(users.get(i)));
+            }
+        }
+        // Une ligne insérée doit être relue : sinon son résultat resterait vide
+        for (int i : inserted) {
+            if (results[i] == null) {
+                throw new IllegalStateException("Inserted user not found on readback: " + users.get(i).getEmail());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Attend la fin des hashages ; au premier échec, annule les autres et relance l'erreur
+    // (PasswordHashingBusyException : 503, aucune ligne n'a encore été insérée)
+    private static void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        }
+    }
+
+    private void insertBatch(List<User> users, List<Integer> indexes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, indexes, indexes.size(), (ps, i) -> {
+            User user = users.get(i);
+            ps.setString(1, user.getName());
+            ps.setString(2, user.getEmail());
+            ps.setString(3, user.getPassword());
+            ps.setString(4, user.getRole());
+        });
+    }
+
+    private static List<String> emailsOf(List<User> users, List<Integer> indexes) {
+        List<String> emails = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            emails.add(users.get(i).getEmail());
+        }
+        return emails;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += size) {
+            chunks.add(list.subList(from, Math.min(from + size, list.size())));
+        }
+        return chunks;
+    }
+}
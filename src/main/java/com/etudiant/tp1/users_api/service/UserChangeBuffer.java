@@ -0,0 +1,52 @@
+package com.etudiant.tp1.users_api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tampon circulaire des derniers événements du flux de changements, numérotés à
+// partir de 1. Permet de rejouer ce qu'un abonné a manqué depuis son Last-Event-ID.
+// Non synchronisé : utilisé uniquement depuis le thread de diffusion de UserChangeFeed
+final class UserChangeBuffer<T> {
+
+    private final Object[] items;
+    // Numéro du dernier élément ajouté (0 : vide)
+    private long lastSequence;
+    // Plus petit numéro à partir duquel une reprise est possible (voir markGap)
+    private long firstResumable;
+
+    UserChangeBuffer(int capacity) {
+        this.items = new Object[capacity];
+    }
+
+    // Ajoute l'élément, écrase le plus ancien si le tampon est plein, et renvoie son numéro
+    long append(T item) {
+        lastSequence++;
+        items[(int) (lastSequence % items.length)] = item;
+        return lastSequence;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    // Des éléments ont été perdus après le dernier ajouté : aucune reprise depuis un
+    // numéro antérieur ou égal n'est plus complète
+    void markGap() {
+        firstResumable = lastSequence + 1;
+    }
+
+    // Éléments de numéro strictement supérieur à sequence, dans l'ordre ; null si
+    // certains ont déjà été écrasés ou perdus, ou si sequence est inconnu (trop grand)
+    @SuppressWarnings("unchecked")
+    List<T> since(long sequence) {
+        long oldest = Math.max(1, lastSequence - items.length + 1);
+        if (sequence < oldest - 1 || sequence < firstResumable || sequence > lastSequence) {
+            return null;
+        }
+        List<T> result = new ArrayList<>((int) (lastSequence - sequence));
+        for (long s = sequence + 1; s <= lastSequence; s++) {
+            result.add((T) items[(int) (s % items.length)]);
+        }
+        return result;
+    }
+}
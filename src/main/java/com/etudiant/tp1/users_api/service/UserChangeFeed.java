@@ -0,0 +1,335 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.UserChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Flux Server-Sent Events des créations, modifications et suppressions (GET /users/changes)
+// Un seul thread de diffusion sérialise chaque événement une fois, l'ajoute au tampon
+// de reprise puis le dépose dans la file bornée de chaque abonné ; abonnements et reprises
+// passent aussi par ce thread, sans verrou ni doublon entre rejeu et direct. Il n'écrit
+// jamais sur le réseau : chaque abonné a son propre thread virtuel d'envoi, un client lent
+// ne retarde que lui et est fermé quand sa file déborde (il reprend avec Last-Event-ID)
+@Service
+public class UserChangeFeed {
+
+    // Nombre d'événements conservés pour la reprise par Last-Event-ID
+    @Value("${users.changes.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${users.changes.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    // Événements en attente d'envoi par abonné, au-delà l'abonné est fermé
+    @Value("${users.changes.subscriber-buffer-size:1000}")
+    private int subscriberBufferSize;
+
+    // Événements en attente du thread de diffusion, au-delà ils sont perdus et les
+    // abonnés reçoivent un reset
+    @Value("${users.changes.publish-queue-size:10000}")
+    private int publishQueueSize;
+
+    // Commentaire envoyé après ce délai sans événement : garde la connexion ouverte à
+    // travers les proxys et détecte les abonnés partis
+    @Value("${users.changes.heartbeat-interval:20s}")
+    private Duration heartbeatInterval;
+
+    // Durée d'un abonnement, le client se reconnecte ensuite avec Last-Event-ID
+    @Value("${users.changes.emitter-timeout:30m}")
+    private Duration emitterTimeout;
+
+    // Délai de reconnexion conseillé aux clients (champ retry)
+    @Value("${users.changes.reconnect-delay:2s}")
+    private Duration reconnectDelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Préfixe des ids d'événements : les numéros repartent de 1 au redémarrage, un id
+    // d'une autre instance ou d'avant le redémarrage est reconnu et donne un reset
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Abonnés actifs : ajoutés par le thread de diffusion, retirés depuis n'importe quel thread
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Un événement a été refusé faute de place : reset à diffuser une fois la file vidée
+    private final AtomicBoolean lost = new AtomicBoolean();
+
+    private ThreadPoolExecutor dispatcher;
+    private UserChangeBuffer<Set<DataWithMediaType>> buffer;
+    private Set<DataWithMediaType> heartbeat;
+    private Set<DataWithMediaType> reset;
+    private Counter eventsCounter;
+    private Counter droppedCounter;
+    private Counter overflowsCounter;
+
+    @PostConstruct
+    public void init() {
+        this.buffer = new UserChangeBuffer<>(bufferSize);
+        this.heartbeat = SseEmitter.event().comment("heartbeat").build();
+        this.reset = SseEmitter.event().name("reset").data("{}").build();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(publishQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "user-changes");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("users.changes.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Abonnés connectés à GET /users/changes")
+                .register(meterRegistry);
+        this.eventsCounter = Counter.builder("users.changes.events")
+                .description("Événements diffusés sur GET /users/changes")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("users.changes.dropped")
+                .description("Événements perdus, file du thread de diffusion pleine")
+                .register(meterRegistry);
+        this.overflowsCounter = Counter.builder("users.changes.overflows")
+                .description("Abonnés fermés car trop lents à lire le flux")
+                .register(meterRegistry);
+    }
+
+    // Termine proprement les flux ouverts : les clients se reconnecteront ailleurs
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+        for (Subscription subscription : List.copyOf(subscriptions)) {
+            subscription.end();
+        }
+    }
+
+    // Nouvel abonné : rejoue ce qu'il a manqué depuis lastEventId (s'il est fourni)
+    // puis reçoit les événements en direct. 503 au-delà de max-subscribers
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers");
+        }
+        Subscription subscription = new Subscription(createEmitter(emitterTimeout.toMillis()));
+        SseEmitter emitter = subscription.emitter;
+        emitter.onCompletion(subscription::close);
+        emitter.onError(error -> subscription.close());
+        emitter.onTimeout(() -> {
+            subscription.close();
+            emitter.complete();
+        });
+        if (!submit(() -> start(subscription, lastEventId))) {
+            subscription.close();
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        UserChange change = UserChange.of(event);
+        if (!submit(() -> publish(change)) && !dispatcher.isShutdown()) {
+            droppedCounter.increment();
+            lost.set(true);
+            // Tâche vide : déclenche le reset même si plus rien n'est publié ensuite
+            submit(() -> { });
+        }
+    }
+
+    // Émetteur d'un abonnement, redéfini par les tests pour simuler un client
+    SseEmitter createEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    // Thread de diffusion : rejeu éventuel, puis inscription pour le direct
+    private void start(Subscription subscription, String lastEventId) {
+        List<Set<DataWithMediaType>> missed = lastEventId == null ? List.of() : missedSince(lastEventId);
+        List<Set<DataWithMediaType>> frames = new ArrayList<>();
+        if (missed == null) {
+            // Id inconnu ou trop ancien : le client doit relire GET /users avant de suivre le flux
+            frames.add(reset);
+        } else {
+            frames.addAll(missed);
+        }
+        // Position courante, pour qu'un client qui n'a encore rien reçu puisse reprendre
+        frames.add(SseEmitter.event()
+                .id(eventId(buffer.lastSequence()))
+                .name("ready")
+                .reconnectTime(reconnectDelay.toMillis())
+                .data("{}")
+                .build());
+        if (subscription.open(frames)) {
+            subscriptions.add(subscription);
+            // Fermé entre-temps depuis un autre thread : close() ne l'a pas trouvé
+            if (subscription.closed.get()) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    // Thread de diffusion : sérialise une fois, conserve pour la reprise, envoie à tous
+    private void publish(UserChange change) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        Set<DataWithMediaType> frame = SseEmitter.event()
+                .id(eventId(buffer.lastSequence() + 1))
+                .name(change.type())
+                .data(json)
+                .build();
+        buffer.append(frame);
+        eventsCounter.increment();
+        broadcast(frame);
+    }
+
+    // Thread de diffusion, après chaque tâche : une fois la file vidée, tout ce qui a été
+    // accepté avant la perte est diffusé ; les abonnés sont remis à zéro et aucune reprise
+    // ne peut plus enjamber le trou
+    private void resetIfLost() {
+        if (dispatcher.getQueue().isEmpty() && lost.compareAndSet(true, false)) {
+            buffer.markGap();
+            broadcast(reset);
+        }
+    }
+
+    private void broadcast(Set<DataWithMediaType> frame) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(frame);
+        }
+    }
+
+    // Événements suivant lastEventId, ou null s'ils ne sont plus (ou pas) dans le tampon
+    private List<Set<DataWithMediaType>> missedSince(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return null;
+        }
+        try {
+            return buffer.since(Long.parseLong(lastEventId.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // Faux si le thread de diffusion est arrêté ou sa file pleine
+    private boolean submit(Runnable task) {
+        try {
+            dispatcher.execute(() -> {
+                task.run();
+                resetIfLost();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Fermé par le serveur (débordement, arrêt) : le thread d'envoi termine la réponse
+        private volatile boolean completeOnExit;
+        private BlockingQueue<Set<DataWithMediaType>> queue;
+        private volatile Thread sender;
+
+        private Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Thread de diffusion : file de l'abonné, amorcée par le rejeu, puis son thread d'envoi.
+        // Faux si le client est déjà parti
+        private boolean open(List<Set<DataWithMediaType>> frames) {
+            if (closed.get()) {
+                return false;
+            }
+            queue = new LinkedBlockingQueue<>(frames.size() + subscriberBufferSize);
+            queue.addAll(frames);
+            sender = Thread.ofVirtual().name("user-changes-sender").start(this::run);
+            return true;
+        }
+
+        // Thread de diffusion : ne bloque jamais, un abonné dont la file est pleine est fermé
+        private void offer(Set<DataWithMediaType> frame) {
+            if (!closed.get() && !queue.offer(frame)) {
+                overflowsCounter.increment();
+                end();
+            }
+        }
+
+        // Boucle du thread d'envoi : seul à écrire sur l'émetteur, heartbeat si rien à envoyer
+        private void run() {
+            try {
+                while (!closed.get()) {
+                    Set<DataWithMediaType> frame = queue.poll(heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if (!closed.get()) {
+                        emitter.send(frame != null ? frame : heartbeat);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Fermé par le serveur pendant l'attente
+            } catch (IOException | IllegalStateException e) {
+                // Client parti : le conteneur signale l'erreur et termine la requête lui-même
+                close();
+                return;
+            }
+            if (completeOnExit) {
+                emitter.complete();
+            }
+        }
+
+        // Fermeture côté serveur : réveille le thread d'envoi, qui termine la réponse
+        private void end() {
+            completeOnExit = true;
+            close();
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+
+        // Appelé au plus une fois utilement, depuis n'importe quel thread
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                subscriptions.remove(this);
+            }
+        }
+    }
+}
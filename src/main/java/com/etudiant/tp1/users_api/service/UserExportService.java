@@ -0,0 +1,54 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.model.UserSummary;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+// Export de l'annuaire complet au format NDJSON (un objet JSON par ligne)
+@Service
+public class UserExportService {
+
+    // Nombre de lignes écrites entre deux envois vers le client
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Parcourt la table avec un curseur JDBC et écrit chaque ligne directement dans
+    // le flux de sortie. Seuls id, nom, email et rôle sont lus (pas le mot de passe) ;
+    // les lignes ne sont pas gardées en mémoire : mémoire constante
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(UserSummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                Stream<UserSummary> users = repository.streamAllSummaries()) {
+            // Le flux de la réponse est fermé par le conteneur, pas par Jackson
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (UserSummary user : (Iterable<UserSummary>) users::iterator) {
+                writer.writeValue(generator, user);
+                generator.writeRaw('\n');
+                if (++count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return count;
+    }
+}
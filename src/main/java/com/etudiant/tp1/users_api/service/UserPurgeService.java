@@ -0,0 +1,72 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Suppression d'utilisateurs en masse (purges RGPD)
+// Un DELETE ... WHERE id IN (...) par paquet, chacun dans sa propre transaction :
+// les verrous et le journal restent bornés et une purge interrompue garde les
+// paquets déjà supprimés
+@Service
+public class UserPurgeService {
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Nombre d'ids par DELETE (et par transaction)
+    @Value("${users.bulk-delete.chunk-size:1000}")
+    private int chunkSize;
+
+    // Supprime les ids donnés, renvoie le nombre d'utilisateurs effectivement supprimés
+    public long deleteByIds(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        long deleted = 0;
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            deleted += deleteChunk(chunk, null, null);
+        }
+        return deleted;
+    }
+
+    // Supprime les utilisateurs correspondant au filtre (voir
+    // UserRepositoryCustom.findIdsMatching) : les ids sont lus par clé, paquet par
+    // paquet, et le filtre est revérifié dans le DELETE
+    public long deleteMatching(String role, String prefix) {
+        long deleted = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> chunk = repository.findIdsMatching(role, prefix, afterId, chunkSize);
+            if (chunk.isEmpty()) {
+                return deleted;
+            }
+            deleted += deleteChunk(chunk, role, prefix);
+            if (chunk.size() < chunkSize) {
+                return deleted;
+            }
+            afterId = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    private int deleteChunk(List<Long> ids, String role, String prefix) {
+        List<UserIdEmailRole> deleted = repository.deleteByIdInMatching(ids, role, prefix);
+        // Un événement par ligne supprimée : les ids absents ou qui ne vérifient plus le
+        // filtre n'en produisent pas (audit, flux SSE, compteurs, révocation des tokens)
+        for (UserIdEmailRole user : deleted) {
+            eventPublisher.publishEvent(UserChangedEvent.deleted(user));
+        }
+        return deleted.size();
+    }
+}
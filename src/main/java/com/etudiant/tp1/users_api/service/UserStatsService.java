@@ -0,0 +1,169 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.config.DataSourceRouting;
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.RoleCount;
+import com.etudiant.tp1.users_api.model.UserStats;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Compteurs d'utilisateurs par rôle pour GET /users/stats, tenus à jour par les
+// UserChangedEvent : la lecture ne touche pas la base, quel que soit le nombre de
+// lignes. Les LongAdder évitent la contention entre écritures concurrentes ; le total
+// est la somme des rôles. Les modifications et suppressions portent l'ancien rôle (lu
+// dans la même transaction) ; un événement sans ancien rôle déclenche un recalage
+// rapide par COUNT ... GROUP BY role, en plus du recalage périodique qui corrige aussi
+// les écritures faites par d'autres instances
+@Service
+public class UserStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserStatsService.class);
+
+    @Value("${users.stats.reconcile-interval:5m}")
+    private Duration reconcileInterval;
+
+    // Délai avant le recalage déclenché par un événement sans ancien rôle (regroupe
+    // les écritures d'une rafale en une seule requête)
+    @Value("${users.stats.resync-delay:1s}")
+    private Duration resyncDelay;
+
+    @Autowired
+    private UserRepository repository;
+
+    private final Map<String, LongAdder> byRole = new ConcurrentHashMap<>();
+    // Nombre d'événements appliqués : un recalage concurrent d'un événement est refait
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean resyncScheduled = new AtomicBoolean();
+    private volatile Instant reconciledAt;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Premier recalage une fois l'application prête, puis à intervalle fixe
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Compteurs courants ; null tant que le premier recalage n'a pas eu lieu
+    public UserStats currentStats() {
+        Instant at = reconciledAt;
+        if (at == null) {
+            return null;
+        }
+        Map<String, Long> roles = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : byRole.entrySet()) {
+            long value = entry.getValue().sum();
+            if (value > 0) {
+                roles.put(entry.getKey(), value);
+                total += value;
+            }
+        }
+        return new UserStats(total, roles, at);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        changes.incrementAndGet();
+        switch (event.type()) {
+            case CREATED -> counter(event.role()).increment();
+            case UPDATED -> {
+                if (event.role() == null) {
+                    return;
+                }
+                if (event.previousRole() == null) {
+                    // Rôle écrit sans connaître l'ancien : peut-être inchangé
+                    scheduleResync();
+                } else if (!event.role().equals(event.previousRole())) {
+                    counter(event.previousRole()).decrement();
+                    counter(event.role()).increment();
+                }
+            }
+            case DELETED -> {
+                if (event.previousRole() != null) {
+                    counter(event.previousRole()).decrement();
+                } else {
+                    scheduleResync();
+                }
+            }
+        }
+    }
+
+    // Remplace les compteurs par les valeurs de la base (lues sur le primaire).
+    // Les écarts sont ajoutés plutôt qu'écrasés : un incrément concurrent n'est pas
+    // perdu ; s'il a eu lieu pendant la requête, un nouveau recalage est programmé
+    void reconcile() {
+        resyncScheduled.set(false);
+        long changesBefore = changes.get();
+        List<RoleCount> counts;
+        try {
+            counts = DataSourceRouting.onPrimary(repository::countByRole);
+        } catch (RuntimeException e) {
+            log.warn("User stats reconciliation failed", e);
+            return;
+        }
+        Map<String, Long> expected = new HashMap<>();
+        for (RoleCount count : counts) {
+            expected.put(count.role(), count.count());
+        }
+        for (String role : expected.keySet()) {
+            counter(role);
+        }
+        byRole.forEach((role, count) -> count.add(expected.getOrDefault(role, 0L) - count.sum()));
+        reconciledAt = Instant.now();
+        if (changes.get() != changesBefore) {
+            scheduleResync();
+        }
+    }
+
+    private void scheduleResync() {
+        if (resyncScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::reconcile, resyncDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Arrêt en cours
+            }
+        }
+    }
+
+    private LongAdder counter(String role) {
+        return byRole.computeIfAbsent(role == null ? "USER" : role, key -> new LongAdder());
+    }
+}
@@ -0,0 +1,10 @@
+-- Table des utilisateurs d'origine, telle que générée par ddl-auto=update (colonnes
+-- token_version et version ajoutées par V4)
+-- Les bases existantes sont marquées en version 1 (baseline-on-migrate) sans rejouer ce script
+CREATE TABLE users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name     VARCHAR(255),
+    email    VARCHAR(255) UNIQUE,
+    password VARCHAR(255),
+    role     VARCHAR(255) NOT NULL
+);
@@ -0,0 +1,5 @@
+-- Index de recherche par préfixe insensible à la casse (GET /users/search)
+-- text_pattern_ops permet à LIKE 'prefixe%' d'utiliser l'index quelle que soit la
+-- collation de la base ; IF NOT EXISTS pour les bases où schema-postgresql.sql les a déjà créés
+CREATE INDEX IF NOT EXISTS idx_users_email_lower_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_name_lower_prefix ON users (lower(name) text_pattern_ops);
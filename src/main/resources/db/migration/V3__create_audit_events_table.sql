@@ -0,0 +1,13 @@
+-- Journal d'audit des modifications d'utilisateurs et des connexions (AuditLog)
+-- Pas de clé étrangère vers users : les lignes d'un utilisateur supprimé sont conservées
+CREATE TABLE audit_events (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    occurred_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    action      VARCHAR(32) NOT NULL,
+    user_id     BIGINT,
+    email       VARCHAR(255),
+    actor       VARCHAR(255)
+);
+
+CREATE INDEX idx_audit_events_user_id ON audit_events (user_id, occurred_at);
+CREATE INDEX idx_audit_events_occurred_at ON audit_events (occurred_at);
@@ -0,0 +1,5 @@
+-- Colonnes ajoutées après le schéma d'origine (V1), absentes des bases marquées en version 1
+-- token_version : révocation des JWT (User.tokenVersion) ; version : verrouillage optimiste
+-- et ETags (@Version). IF NOT EXISTS : une base déjà complétée par ddl-auto=update les a
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,89 @@
+package com.etudiant.tp1.users_api.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test unitaire du journal d'audit asynchrone (file bornée et écriture par paquets)
+class AuditLogTest {
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AuditLog newAuditLog(int queueCapacity, int batchSize, Duration flushInterval) {
+        AuditLog auditLog = new AuditLog();
+        ReflectionTestUtils.setField(auditLog, "enabled", true);
+        ReflectionTestUtils.setField(auditLog, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(auditLog, "batchSize", batchSize);
+        ReflectionTestUtils.setField(auditLog, "flushInterval", flushInterval);
+        ReflectionTestUtils.setField(auditLog, "overflowPolicy", AuditLog.OverflowPolicy.DROP);
+        ReflectionTestUtils.setField(auditLog, "blockTimeout", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(auditLog, "shutdownTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(auditLog, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(auditLog, "meterRegistry", meterRegistry);
+        auditLog.init();
+        return auditLog;
+    }
+
+    private List<String> capturedSql(int times) {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(jdbcTemplate, Mockito.times(times)).update(sql.capture(), Mockito.any(PreparedStatementSetter.class));
+        return sql.getAllValues();
+    }
+
+    private static int rows(String sql) {
+        return sql.split("\\(\\?", -1).length - 1;
+    }
+
+    // Teste que les événements sont écrits par INSERT multi-lignes et que l'arrêt vide la file
+    @Test
+    void shutdown_shouldWriteQueuedEventsInBatches() throws Exception {
+        AuditLog auditLog = newAuditLog(100, 2, Duration.ofHours(1));
+
+        auditLog.record(AuditAction.USER_CREATED, 1L, "a@example.com", null);
+        auditLog.record(AuditAction.USER_UPDATED, 1L, "a@example.com", "admin@example.com");
+        auditLog.record(AuditAction.LOGIN_SUCCESS, 2L, "b@example.com", "b@example.com");
+        auditLog.shutdown();
+
+        List<String> sql = capturedSql(2);
+        assertEquals(2, rows(sql.get(0)));
+        assertEquals(1, rows(sql.get(1)));
+        assertEquals(3.0, meterRegistry.get("audit.events").tag("outcome", "written").counter().count());
+    }
+
+    // Teste qu'un événement est abandonné quand la file est pleine (politique DROP)
+    @Test
+    void record_shouldDropWhenQueueIsFull() throws Exception {
+        AuditLog auditLog = newAuditLog(2, 100, Duration.ofHours(1));
+
+        assertTrue(auditLog.record(new AuditEvent(Instant.now(), AuditAction.LOGIN_FAILURE, null, "x", "x")));
+        assertTrue(auditLog.record(new AuditEvent(Instant.now(), AuditAction.LOGIN_FAILURE, null, "y", "y")));
+        assertFalse(auditLog.record(new AuditEvent(Instant.now(), AuditAction.LOGIN_FAILURE, null, "z", "z")));
+        auditLog.shutdown();
+
+        assertEquals(2, rows(capturedSql(1).get(0)));
+        assertEquals(1.0, meterRegistry.get("audit.events").tag("outcome", "dropped").counter().count());
+    }
+
+    // Teste qu'aucun événement n'est accepté après l'arrêt
+    @Test
+    void record_shouldRejectAfterShutdown() throws Exception {
+        AuditLog auditLog = newAuditLog(100, 10, Duration.ofMillis(10));
+        auditLog.shutdown();
+
+        assertFalse(auditLog.record(new AuditEvent(Instant.now(), AuditAction.USER_DELETED, 3L, null, null)));
+        Mockito.verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,108 @@
+package com.etudiant.tp1.users_api.config;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test unitaire du limiteur de connexions (mode threads virtuels)
+class ConnectionLimitingDataSourceTest {
+
+    private static final Duration SHORT_TIMEOUT = Duration.ofMillis(50);
+
+    private final DataSource target = Mockito.mock(DataSource.class);
+
+    private ConnectionLimitingDataSource limiter(int permits, int maxWaiters, Duration acquireTimeout)
+            throws SQLException {
+        Mockito.when(target.getConnection()).thenAnswer(invocation -> Mockito.mock(Connection.class));
+        return new ConnectionLimitingDataSource(target, permits, maxWaiters, acquireTimeout);
+    }
+
+    // Teste que la fermeture de la connexion rend le jeton, une seule fois
+    @Test
+    void close_shouldReleasePermitOnce() throws SQLException {
+        ConnectionLimitingDataSource dataSource = limiter(1, 10, SHORT_TIMEOUT);
+
+        Connection first = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+        Connection second = dataSource.getConnection();
+        assertNotNull(second);
+        // Le second close() de la première connexion n'a pas rendu de jeton supplémentaire
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        second.close();
+    }
+
+    // Teste l'échec après acquireTimeout quand tous les jetons sont pris
+    @Test
+    void getConnection_shouldTimeOutWhenNoPermitIsAvailable() throws SQLException {
+        ConnectionLimitingDataSource dataSource = limiter(1, 10, SHORT_TIMEOUT);
+        dataSource.getConnection();
+
+        long start = System.nanoTime();
+        SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class,
+                dataSource::getConnection);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis >= SHORT_TIMEOUT.toMillis(), "returned after " + elapsedMillis + " ms");
+        assertTrue(e.getMessage().contains("No database connection available"));
+        assertEquals(0, dataSource.getWaiters());
+        Mockito.verify(target, Mockito.times(1)).getConnection();
+    }
+
+    // Teste le refus immédiat au-delà de maxWaiters threads en attente
+    @Test
+    void getConnection_shouldFailFastWhenTooManyThreadsWait() throws Exception {
+        ConnectionLimitingDataSource dataSource = limiter(1, 1, Duration.ofSeconds(10));
+        Connection held = dataSource.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dataSource.getWaiters() < 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1, dataSource.getWaiters());
+
+        SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class,
+                dataSource::getConnection);
+        assertTrue(e.getMessage().contains("Too many threads waiting"));
+
+        // Le jeton rendu débloque le thread en attente
+        held.close();
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, dataSource.getWaiters());
+    }
+
+    // Teste que le jeton est rendu quand le pool sous-jacent lève une exception
+    @Test
+    void getConnection_shouldReleasePermitWhenTargetFails() throws SQLException {
+        ConnectionLimitingDataSource dataSource = limiter(1, 10, SHORT_TIMEOUT);
+        Mockito.when(target.getConnection())
+                .thenThrow(new SQLException("pool exhausted"))
+                .thenThrow(new IllegalStateException("pool closed"))
+                .thenAnswer(invocation -> Mockito.mock(Connection.class));
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(IllegalStateException.class, dataSource::getConnection);
+        assertNotNull(dataSource.getConnection());
+    }
+}
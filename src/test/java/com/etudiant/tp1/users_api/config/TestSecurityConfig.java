@@ -1,12 +1,16 @@
 package com.etudiant.tp1.users_api.config;
 
 import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
 import com.etudiant.tp1.users_api.security.JwtService;
+import com.etudiant.tp1.users_api.security.TokenVersionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mockito;
 
 @TestConfiguration
@@ -18,6 +22,18 @@ public class TestSecurityConfig {
         return Mockito.mock(JwtService.class);
     }
 
+    // Dépendance de JwtAuthenticationFilter, chargé par @WebMvcTest
+    // @MockBean plutôt qu'un @Bean : le mock n'est pas autowiré par Spring (son
+    // UserRepository n'existe pas dans tous les slices)
+    @MockBean
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    // Les métriques du filtre s'enregistrent au démarrage du slice
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
     @Bean
     @Primary
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -1,6 +1,9 @@
 package com.etudiant.tp1.users_api.controller;
 
+import com.etudiant.tp1.users_api.security.AuthenticatedUser;
 import com.etudiant.tp1.users_api.security.JwtService;
+import com.etudiant.tp1.users_api.security.LoginThrottle;
+import com.etudiant.tp1.users_api.security.LoginThrottledException;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +13,16 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
+import java.util.List;
+
 // Test unitaire du contrôleur d'authentification (AuthController)
 @WebMvcTest(AuthController.class)
 @Import(com.etudiant.tp1.users_api.config.TestSecurityConfig.class)
@@ -30,6 +37,9 @@ class AuthControllerTest {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private LoginThrottle loginThrottle;
+
     // Teste que la route /auth/login retourne bien un token JWT
     @Test
     void login_shouldReturnToken() throws Exception {
@@ -57,4 +67,42 @@ class AuthControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value(token));
     }
+
+    // Teste que le token émis embarque l'id, le rôle et la version de l'utilisateur
+    @Test
+    void login_shouldIssueSelfContainedToken() throws Exception {
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "admin@example.com", "hashed", "ADMIN", 3,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal()).thenReturn(principal);
+        Mockito.when(authenticationManager.authenticate(Mockito.any())).thenReturn(authentication);
+        Mockito.when(jwtService.generateToken(principal)).thenReturn("self-contained-token");
+
+        String body = "{\"username\":\"admin@example.com\",\"password\":\"password\"}";
+
+        mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("self-contained-token"));
+    }
+
+    // Teste qu'une tentative au-delà de la limite est refusée sans authentification
+    @Test
+    void login_shouldReturn429WhenThrottled() throws Exception {
+        Mockito.doThrow(new LoginThrottledException("Too many login attempts, retry later", 12))
+                .when(loginThrottle).acquire(Mockito.eq("admin@example.com"), Mockito.anyString());
+
+        String body = "{\"username\":\"admin@example.com\",\"password\":\"password\"}";
+
+        mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"))
+                .andExpect(jsonPath("$.status").value(429));
+        // Limite appliquée à l'email et à l'adresse du client, avant tout calcul BCrypt
+        Mockito.verify(loginThrottle).acquire("admin@example.com", "127.0.0.1");
+        Mockito.verifyNoInteractions(authenticationManager);
+    }
 }
@@ -0,0 +1,91 @@
+package com.etudiant.tp1.users_api.controller;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.etudiant.tp1.users_api.security.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test de bout en bout de la compression gzip par Tomcat : l'application démarre sur
+// un port aléatoire avec une base SQLite (profil loadtest)
+// GET /users porte un ETag : il doit être faible pour que la réponse soit compressée
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:sqlite:target/compression-test.db?busy_timeout=10000")
+class UserCompressionTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        List<User> users = new ArrayList<>();
+        users.add(new User("Admin", "admin@example.com", "hashed", "ADMIN"));
+        // Page au-delà du seuil de compression (2 Ko)
+        for (int i = 0; i < 50; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com", "hashed", "USER"));
+        }
+        repository.saveAll(users);
+    }
+
+    private HttpResponse<byte[]> getUsers(String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users"))
+                .header("Authorization", "Bearer " + jwtService.generateToken("admin@example.com"))
+                .header("Accept-Encoding", acceptEncoding)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // Teste que GET /users est compressé en gzip, avec un ETag faible
+    @Test
+    void getAllUsers_shouldBeGzipped() throws Exception {
+        HttpResponse<byte[]> response = getUsers("gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("W/\""));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            String json = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(json.contains("user0@example.com"));
+        }
+    }
+
+    // Teste qu'un client sans Accept-Encoding reçoit la réponse brute
+    @Test
+    void getAllUsers_shouldNotBeGzipped_withoutAcceptEncoding() throws Exception {
+        HttpResponse<byte[]> response = getUsers("identity");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(new String(response.body(), StandardCharsets.UTF_8).contains("user0@example.com"));
+    }
+}
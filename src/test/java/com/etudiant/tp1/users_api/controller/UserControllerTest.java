@@ -1,37 +1,91 @@
 package com.etudiant.tp1.users_api.controller;
 
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
 import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserFields;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserPageVersion;
+import com.etudiant.tp1.users_api.model.UserStats;
+import com.etudiant.tp1.users_api.model.UserSummary;
+import com.etudiant.tp1.users_api.model.UserUpdate;
 import com.etudiant.tp1.users_api.repository.UserRepository;
 import com.etudiant.tp1.users_api.config.TestSecurityConfig;
+import com.etudiant.tp1.users_api.security.PasswordHashingBusyException;
+import com.etudiant.tp1.users_api.service.BatchItemResult;
+import com.etudiant.tp1.users_api.service.RegisteredEmails;
+import com.etudiant.tp1.users_api.service.UserBatchService;
+import com.etudiant.tp1.users_api.service.UserChangeFeed;
+import com.etudiant.tp1.users_api.service.UserExportService;
+import com.etudiant.tp1.users_api.service.UserPurgeService;
+import com.etudiant.tp1.users_api.service.UserStatsService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @WebMvcTest(UserController.class)
 @Import(TestSecurityConfig.class)
+@RecordApplicationEvents
 class UserControllerTest {
 
+    // Ligne lue avant modification ou suppression par le dépôt
+    private static final UserIdEmailRole PREVIOUS = new UserIdEmailRole(1L, "test@example.com", "USER");
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ApplicationEvents events;
+
     @MockBean
     private UserRepository userRepository;
 
     @MockBean
     private PasswordEncoder passwordEncoder;
 
+    @MockBean
+    private UserExportService exportService;
+
+    @MockBean
+    private UserBatchService batchService;
+
+    @MockBean
+    private UserPurgeService purgeService;
+
+    @MockBean
+    private UserChangeFeed changeFeed;
+
+    @MockBean
+    private UserStatsService statsService;
+
+    @MockBean
+    private RegisteredEmails registeredEmails;
+
     // Teste la création d'un utilisateur avec rôle par défaut (POST /users)
     @Test
     void createUser_shouldReturn201_withDefaultRole() throws Exception {
@@ -71,15 +125,212 @@ class UserControllerTest {
     @Test
     void getAllUsers_shouldReturn200() throws Exception {
         User user1 = new User("Test1", "test1@example.com", "password", "USER");
+        user1.setId(1L);
         User user2 = new User("Test2", "test2@example.com", "password", "USER");
-        Mockito.when(userRepository.findAll()).thenReturn(Arrays.asList(user1, user2));
+        user2.setId(2L);
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0L), Mockito.any(Limit.class)))
+                .thenReturn(Arrays.asList(user1, user2));
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$[0].role").value("USER"))
                 .andExpect(jsonPath("$[1].role").value("USER"));
     }
 
+    // Teste la pagination par curseur : la page est tronquée et le curseur suivant
+    // permet de reprendre après le dernier id renvoyé
+    @Test
+    void getAllUsers_shouldReturnNextCursor() throws Exception {
+        User user1 = new User("Test1", "test1@example.com", "password", "USER");
+        user1.setId(1L);
+        User user2 = new User("Test2", "test2@example.com", "password", "USER");
+        user2.setId(2L);
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(user1, user2));
+
+        String cursor = mockMvc.perform(get("/users").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(2)))
+                .thenReturn(Arrays.asList(user2));
+
+        mockMvc.perform(get("/users").param("after", cursor).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    // Teste qu'un curseur invalide est rejeté (GET /users?after=...)
+    @Test
+    void getAllUsers_shouldReturn400_onInvalidCursor() throws Exception {
+        mockMvc.perform(get("/users").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Teste la sélection de champs : seules les colonnes demandées sont lues et renvoyées
+    @Test
+    void getAllUsers_shouldReturnSelectedFields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("email", "test1@example.com");
+        Mockito.when(userRepository.findFieldsByIdGreaterThan(Set.of("email"), 0L, 51))
+                .thenReturn(Arrays.asList(new UserFields(4, row)));
+
+        mockMvc.perform(get("/users").param("fields", "email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].email").value("test1@example.com"))
+                .andExpect(jsonPath("$[0].name").doesNotExist())
+                .andExpect(jsonPath("$[0].version").doesNotExist())
+                .andExpect(header().string("ETag", "W/\"p1.4.1-email\""));
+        Mockito.verify(userRepository, Mockito.never())
+                .findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Limit.class));
+        // L'ETag vient de la version lue avec les champs, sans requête d'empreinte
+        Mockito.verify(userRepository, Mockito.never()).findPageVersion(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    // Teste la sélection de champs sur un utilisateur : ETag tiré de la même requête
+    @Test
+    void getUserById_shouldReturnSelectedFieldsWithEtag() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("role", "ADMIN");
+        Mockito.when(userRepository.findFieldsById(Set.of("role"), 1L)).thenReturn(Optional.of(new UserFields(3, row)));
+
+        mockMvc.perform(get("/users/1").param("fields", "role"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.role").value("ADMIN"))
+                .andExpect(jsonPath("$.email").doesNotExist())
+                .andExpect(header().string("ETag", "W/\"v3-role\""));
+        Mockito.verify(userRepository, Mockito.never()).findVersionById(Mockito.anyLong());
+    }
+
+    // Teste qu'une page inchangée donne 304 sans lire les utilisateurs
+    @Test
+    void getAllUsers_shouldReturn304_whenPageUnchanged() throws Exception {
+        Mockito.when(userRepository.findPageVersion(0L, 51)).thenReturn(new UserPageVersion(2, 5, 3));
+
+        mockMvc.perform(get("/users").header("If-None-Match", "\"p2.5.3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"p2.5.3\""));
+        Mockito.verify(userRepository, Mockito.never())
+                .findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Limit.class));
+    }
+
+    // Teste qu'un champ non sélectionnable (ex. password) est refusé
+    @Test
+    void getUserById_shouldReturn400_onUnknownField() throws Exception {
+        mockMvc.perform(get("/users/1").param("fields", "email,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Teste la recherche par préfixe : terme mis en minuscules, projection sans mot de passe
+    @Test
+    void searchUsers_shouldReturnSummaries() throws Exception {
+        Mockito.when(userRepository.searchByPrefix("jea%", 0L, Limit.of(51)))
+                .thenReturn(Arrays.asList(new UserSummary(3L, "Jean", "jean@example.com", "USER")));
+
+        mockMvc.perform(get("/users/search").param("q", " Jea "))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].email").value("jean@example.com"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    // Teste que les jokers de LIKE saisis par le client sont cherchés littéralement
+    @Test
+    void searchUsers_shouldEscapeLikeWildcards() throws Exception {
+        Mockito.when(userRepository.searchByPrefix(Mockito.anyString(), Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenReturn(Arrays.asList());
+
+        mockMvc.perform(get("/users/search").param("q", "a_b%"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(userRepository).searchByPrefix("a\\_b\\%%", 0L, Limit.of(51));
+    }
+
+    // Teste qu'un terme vide est rejeté (GET /users/search?q=)
+    @Test
+    void searchUsers_shouldReturn400_onBlankQuery() throws Exception {
+        mockMvc.perform(get("/users/search").param("q", "  "))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Teste l'export NDJSON, écrit de manière asynchrone dans la réponse (GET /users/export)
+    @Test
+    void exportUsers_shouldStreamNdjson() throws Exception {
+        Mockito.when(exportService.exportNdjson(Mockito.any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    // Teste les statistiques servies par les compteurs, sans requête en base (GET /users/stats)
+    @Test
+    void getStats_shouldReturnCounters() throws Exception {
+        Mockito.when(statsService.currentStats()).thenReturn(new UserStats(12, Map.of("ADMIN", 2L, "USER", 10L),
+                Instant.parse("2026-01-01T00:00:00Z")));
+
+        mockMvc.perform(get("/users/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(12))
+                .andExpect(jsonPath("$.byRole.USER").value(10))
+                .andExpect(jsonPath("$.byRole.ADMIN").value(2));
+        Mockito.verifyNoInteractions(userRepository);
+    }
+
+    // Teste l'abonnement au flux SSE avec reprise par Last-Event-ID (GET /users/changes)
+    @Test
+    void streamChanges_shouldResumeFromLastEventId() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        Mockito.when(changeFeed.subscribe("k1-3")).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/users/changes").header("Last-Event-ID", "k1-3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().id("k1-4").name("created").data("{\"type\":\"created\",\"id\":4}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("id:k1-4\nevent:created\n")));
+    }
+
+    // Teste la création en masse avec un résultat par élément (POST /users/batch)
+    @Test
+    void createUsers_shouldReturnPerItemResults() throws Exception {
+        Mockito.when(batchService.createAll(Mockito.anyList())).thenReturn(Arrays.asList(
+                new BatchItemResult(0, BatchItemResult.Status.CREATED, 10L, "a@example.com", null),
+                new BatchItemResult(1, BatchItemResult.Status.CONFLICT, null, "b@example.com",
+                        "Email already exists")));
+
+        String body = "[{\"name\":\"A\",\"email\":\"a@example.com\",\"password\":\"p\"},"
+                + "{\"name\":\"B\",\"email\":\"b@example.com\",\"password\":\"p\"}]";
+
+        mockMvc.perform(post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").value(10))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"));
+    }
+
     // Teste la récupération d'un utilisateur par ID existant (GET /users/1)
     @Test
     void getUserById_shouldReturn200() throws Exception {
@@ -89,9 +340,21 @@ class UserControllerTest {
 
         mockMvc.perform(get("/users/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"v0\""))
                 .andExpect(jsonPath("$.role").value("USER"));
     }
 
+    // Teste qu'un utilisateur inchangé donne 304 sans charger l'entité
+    @Test
+    void getUserById_shouldReturn304_whenVersionUnchanged() throws Exception {
+        Mockito.when(userRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/users/1").header("If-None-Match", "\"v3\""))
+                .andExpect(status().isNotModified());
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+
     // Teste la récupération d'un utilisateur inexistant (GET /users/99)
     @Test
     void getUserById_shouldReturn404() throws Exception {
@@ -101,50 +364,55 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
-    // Teste la modification d'un utilisateur existant (PUT /users/1)
+    // Teste la modification d'un utilisateur existant (PUT /users/1) : un seul UPDATE,
+    // mot de passe hashé, puis l'utilisateur modifié relu et renvoyé (200)
     @Test
-    void updateUser_shouldReturn200() throws Exception {
-        User existing = new User("Old", "old@example.com", "oldpass", "USER");
-        existing.setId(1L);
-        User updated = new User("New", "new@example.com", "newpass", "USER");
+    void updateUser_shouldReturn200WithUpdatedUser() throws Exception {
+        User updated = new User("New", "new@example.com", "hashed", "USER");
         updated.setId(1L);
-
-        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(existing));
-        Mockito.when(passwordEncoder.encode(Mockito.anyString())).thenReturn("hashed");
-        Mockito.when(userRepository.save(Mockito.any(User.class))).thenReturn(updated);
+        updated.setVersion(4L);
+        Mockito.when(passwordEncoder.encode("newpass")).thenReturn("hashed");
+        Mockito.when(userRepository.updateFields(1L, new UserUpdate("New", "new@example.com", "hashed", null), null))
+                .thenReturn(Optional.of(PREVIOUS));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(updated));
 
         String body = "{\"name\":\"New\",\"email\":\"new@example.com\",\"password\":\"newpass\"}";
 
         mockMvc.perform(put("/users/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(body))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"v4\""))
+                .andExpect(header().doesNotExist("Preference-Applied"))
+                .andExpect(jsonPath("$.email").value("new@example.com"));
     }
 
-    // Teste la modification du rôle d'un utilisateur
+    // Teste la modification du rôle d'un utilisateur, avec l'utilisateur relu en réponse
     @Test
     void updateUser_shouldUpdateRole() throws Exception {
-        User existing = new User("Test", "test@example.com", "password", "USER");
-        existing.setId(1L);
         User updated = new User("Test", "test@example.com", "password", "ADMIN");
         updated.setId(1L);
+        updated.setVersion(1L);
 
-        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(existing));
-        Mockito.when(userRepository.save(Mockito.any(User.class))).thenReturn(updated);
+        Mockito.when(userRepository.updateFields(1L, new UserUpdate("Test", "test@example.com", null, "ADMIN"), null))
+                .thenReturn(Optional.of(PREVIOUS));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(updated));
 
         String body = "{\"name\":\"Test\",\"email\":\"test@example.com\",\"role\":\"ADMIN\"}";
 
         mockMvc.perform(put("/users/1")
+                .header("Prefer", "return=representation")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(body))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"v1\""))
                 .andExpect(jsonPath("$.role").value("ADMIN"));
     }
 
     // Teste la modification d'un utilisateur inexistant (PUT /users/99)
     @Test
     void updateUser_shouldReturn404() throws Exception {
-        Mockito.when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        Mockito.when(passwordEncoder.encode(Mockito.anyString())).thenReturn("hashed");
 
         String body = "{\"name\":\"New\",\"email\":\"new@example.com\",\"password\":\"newpass\"}";
 
@@ -154,24 +422,116 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
-    // Teste la suppression d'un utilisateur existant (DELETE /users/1)
+    // Teste qu'un If-Match périmé empêche la modification (PUT /users/{id})
     @Test
-    void deleteUser_shouldReturn200() throws Exception {
+    void updateUser_shouldReturn412_onStaleIfMatch() throws Exception {
+        Mockito.when(userRepository.updateFields(Mockito.eq(1L), Mockito.any(UserUpdate.class), Mockito.eq(3L)))
+                .thenReturn(Optional.empty());
         Mockito.when(userRepository.existsById(1L)).thenReturn(true);
 
+        mockMvc.perform(put("/users/1")
+                .header("If-Match", "\"v3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"New\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    // Teste la modification partielle (PATCH /users/1) : seuls les champs fournis sont
+    // écrits, la nouvelle version est renvoyée dans l'ETag et l'événement porte l'ancien rôle
+    @Test
+    void patchUser_shouldUpdateOnlyProvidedFields() throws Exception {
+        Mockito.when(userRepository.updateFields(1L, new UserUpdate(null, null, null, "ADMIN"), 2L))
+                .thenReturn(Optional.of(PREVIOUS));
+
+        mockMvc.perform(patch("/users/1")
+                .header("If-Match", "W/\"v2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"role\":\"ADMIN\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "W/\"v3\""));
+        Mockito.verifyNoInteractions(passwordEncoder);
+        assertEquals(new UserChangedEvent(UserChangedEvent.Type.UPDATED, 1L, null, "test@example.com", "ADMIN", "USER"),
+                events.stream(UserChangedEvent.class).findFirst().orElseThrow());
+    }
+
+    // Teste qu'un PATCH du seul nom ne réécrit pas le rôle (pas de valeur par défaut)
+    @Test
+    void patchUser_shouldNotResetRole_whenRoleIsAbsent() throws Exception {
+        Mockito.when(userRepository.updateFields(1L, new UserUpdate("x", null, null, null), null))
+                .thenReturn(Optional.of(PREVIOUS));
+
+        mockMvc.perform(patch("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"x\"}"))
+                .andExpect(status().isNoContent());
+        Mockito.verify(userRepository).updateFields(1L, new UserUpdate("x", null, null, null), null);
+    }
+
+    // Teste qu'un PATCH sans champ modifiable est rejeté
+    @Test
+    void patchUser_shouldReturn400_whenNothingToUpdate() throws Exception {
+        mockMvc.perform(patch("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Teste la suppression d'un utilisateur existant (DELETE /users/1) : l'événement
+    // porte l'email et le rôle de la ligne supprimée
+    @Test
+    void deleteUser_shouldReturn200() throws Exception {
+        Mockito.when(userRepository.deleteRowById(1L)).thenReturn(Optional.of(PREVIOUS));
+
         mockMvc.perform(delete("/users/1"))
                 .andExpect(status().isOk());
+        Mockito.verify(userRepository, Mockito.never()).existsById(Mockito.anyLong());
+        assertEquals(UserChangedEvent.deleted(PREVIOUS),
+                events.stream(UserChangedEvent.class).findFirst().orElseThrow());
     }
 
     // Teste la suppression d'un utilisateur inexistant (DELETE /users/99)
     @Test
     void deleteUser_shouldReturn404() throws Exception {
-        Mockito.when(userRepository.existsById(99L)).thenReturn(false);
+        Mockito.when(userRepository.deleteRowById(99L)).thenReturn(Optional.empty());
 
         mockMvc.perform(delete("/users/99"))
                 .andExpect(status().isNotFound());
     }
 
+    // Teste la suppression en masse par liste d'ids (POST /users/bulk-delete)
+    @Test
+    void bulkDeleteUsers_shouldDeleteIds() throws Exception {
+        Mockito.when(purgeService.deleteByIds(Arrays.asList(1L, 2L, 3L))).thenReturn(2L);
+
+        mockMvc.perform(post("/users/bulk-delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2,3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
+    // Teste la suppression en masse par filtre : préfixe préparé comme pour la recherche
+    @Test
+    void bulkDeleteUsers_shouldDeleteMatchingFilter() throws Exception {
+        Mockito.when(purgeService.deleteMatching("USER", "test%")).thenReturn(5L);
+
+        mockMvc.perform(post("/users/bulk-delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"role\":\"USER\",\"q\":\"Test\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(5));
+    }
+
+    // Teste qu'une requête sans critère (ou avec ids et filtre à la fois) est rejetée
+    @Test
+    void bulkDeleteUsers_shouldReturn400_withoutSingleCriterion() throws Exception {
+        mockMvc.perform(post("/users/bulk-delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+        Mockito.verifyNoInteractions(purgeService);
+    }
+
     // Teste que le mot de passe est bien hashé lors de la création
     @Test
     void createUser_shouldHashPassword() throws Exception {
@@ -192,6 +552,52 @@ class UserControllerTest {
         Mockito.verify(passwordEncoder).encode("password");
     }
 
+    // Teste que la saturation du pool BCrypt renvoie 503 avec Retry-After
+    @Test
+    void createUser_shouldReturn503_whenHashingPoolIsFull() throws Exception {
+        Mockito.when(passwordEncoder.encode(Mockito.anyString()))
+                .thenThrow(new PasswordHashingBusyException("Password hashing queue is full", 2));
+
+        String body = "{\"name\":\"Test\",\"email\":\"test@example.com\",\"password\":\"password\"}";
+
+        mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any(User.class));
+    }
+
+    // Teste qu'un email déjà utilisé donne 409 sans calcul BCrypt
+    @Test
+    void createUser_shouldReturn409_whenEmailExists() throws Exception {
+        Mockito.when(registeredEmails.exists("test@example.com")).thenReturn(true);
+
+        String body = "{\"name\":\"Test\",\"email\":\"test@example.com\",\"password\":\"password\"}";
+
+        mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isConflict());
+        Mockito.verifyNoInteractions(passwordEncoder);
+        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any(User.class));
+    }
+
+    // Teste qu'une inscription concurrente avec le même email donne 409 et non 500
+    @Test
+    void createUser_shouldReturn409_onUniqueConstraintViolation() throws Exception {
+        Mockito.when(passwordEncoder.encode(Mockito.anyString())).thenReturn("hashed");
+        Mockito.when(userRepository.save(Mockito.any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        String body = "{\"name\":\"Test\",\"email\":\"test@example.com\",\"password\":\"password\"}";
+
+        mockMvc.perform(post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isConflict());
+    }
+
     // Teste que le rôle par défaut est bien USER si non spécifié
     @Test
     void createUser_shouldSetDefaultRoleIfNotProvided() throws Exception {
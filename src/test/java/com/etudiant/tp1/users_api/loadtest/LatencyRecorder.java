@@ -0,0 +1,49 @@
+package com.etudiant.tp1.users_api.loadtest;
+
+import java.util.Arrays;
+
+// Enregistre les latences (en nanosecondes) d'un endpoint et calcule les percentiles
+class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long nanos, boolean success) {
+        if (!success) {
+            errors++;
+        }
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long errors() {
+        return errors;
+    }
+
+    // Percentile en millisecondes (méthode du rang le plus proche)
+    synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(rank, count - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,261 @@
+package com.etudiant.tp1.users_api.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test de charge de bout en bout : l'application démarre sur un port aléatoire avec
+// une base SQLite, puis des clients concurrents envoient un mélange réaliste de
+// connexions, lectures et créations. Le test affiche le débit et les percentiles de
+// latence par endpoint et échoue si un seuil (SLO) est dépassé
+// Lancement : mvn -Pload-test test
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class UserApiLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Nombre de clients simultanés et durée de la mesure
+    @Value("${loadtest.clients:64}")
+    private int clients;
+
+    @Value("${loadtest.duration:30s}")
+    private Duration duration;
+
+    @Value("${loadtest.warmup:5s}")
+    private Duration warmup;
+
+    // Nombre d'utilisateurs créés avant la mesure
+    @Value("${loadtest.users:1000}")
+    private int userCount;
+
+    // Seuils p99 en millisecondes par endpoint et taux d'erreur maximal
+    @Value("${loadtest.slo.p99.login:2000}")
+    private double sloLoginP99;
+
+    @Value("${loadtest.slo.p99.get-user:200}")
+    private double sloGetUserP99;
+
+    @Value("${loadtest.slo.p99.list-users:300}")
+    private double sloListUsersP99;
+
+    @Value("${loadtest.slo.p99.create-user:2000}")
+    private double sloCreateUserP99;
+
+    @Value("${loadtest.slo.max-error-rate:0.01}")
+    private double sloMaxErrorRate;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    void mixedWorkload_shouldMeetSlo() throws Exception {
+        // Préparation : un administrateur, un lot d'utilisateurs et un token par rôle
+        String adminEmail = "admin-" + System.nanoTime() + "@load.test";
+        send(post("/users", "{\"name\":\"Admin\",\"email\":\"" + adminEmail + "\",\"password\":\"" + PASSWORD
+                + "\",\"role\":\"ADMIN\"}", null));
+        String adminToken = login(adminEmail);
+        List<Long> userIds = seedUsers(adminToken, adminEmail);
+        String userEmail = "user-0-" + adminEmail;
+        String userToken = login(userEmail);
+
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (String name : List.of("POST /auth/login", "GET /users/{id}", "GET /users", "POST /users")) {
+            recorders.put(name, new LatencyRecorder(name));
+        }
+
+        // Échauffement (non mesuré) puis mesure
+        runClients(adminEmail, userEmail, userToken, userIds, warmup, null);
+        long start = System.nanoTime();
+        runClients(adminEmail, userEmail, userToken, userIds, duration, recorders);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        String report = report(recorders, elapsedSeconds);
+        System.out.println(report);
+        Files.writeString(Path.of("target", "loadtest-report.txt"), report);
+
+        List<String> violations = new ArrayList<>();
+        checkSlo(violations, recorders.get("POST /auth/login"), sloLoginP99);
+        checkSlo(violations, recorders.get("GET /users/{id}"), sloGetUserP99);
+        checkSlo(violations, recorders.get("GET /users"), sloListUsersP99);
+        checkSlo(violations, recorders.get("POST /users"), sloCreateUserP99);
+        assertTrue(violations.isEmpty(), "SLO breached:\n" + String.join("\n", violations));
+    }
+
+    // Mélange : 70 % lecture d'un utilisateur, 15 % page de la liste, 10 % connexion,
+    // 5 % création. Chaque client enchaîne les requêtes sans pause (boucle fermée)
+    private void runClients(String adminEmail, String userEmail, String userToken, List<Long> userIds,
+            Duration runFor, Map<String, LatencyRecorder> recorders) throws InterruptedException {
+        long deadline = System.nanoTime() + runFor.toNanos();
+        AtomicLong sequence = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int dice = random.nextInt(100);
+                    String endpoint;
+                    HttpRequest request;
+                    if (dice < 70) {
+                        endpoint = "GET /users/{id}";
+                        long id = userIds.get(random.nextInt(userIds.size()));
+                        request = get("/users/" + id, userToken);
+                    } else if (dice < 85) {
+                        endpoint = "GET /users";
+                        request = get("/users?limit=50", userToken);
+                    } else if (dice < 95) {
+                        endpoint = "POST /auth/login";
+                        String email = random.nextBoolean() ? userEmail : adminEmail;
+                        request = post("/auth/login",
+                                "{\"username\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}", null);
+                    } else {
+                        endpoint = "POST /users";
+                        String email = "new-" + sequence.incrementAndGet() + "-" + System.nanoTime() + "@load.test";
+                        request = post("/users", "{\"name\":\"New\",\"email\":\"" + email + "\",\"password\":\""
+                                + PASSWORD + "\"}", null);
+                    }
+                    long begin = System.nanoTime();
+                    boolean success;
+                    try {
+                        int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        success = status < 400;
+                    } catch (IOException e) {
+                        success = false;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (recorders != null) {
+                        recorders.get(endpoint).record(System.nanoTime() - begin, success);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(runFor.toSeconds() + 60, TimeUnit.SECONDS);
+    }
+
+    // Crée les utilisateurs via POST /users/batch, emails suffixés par celui de l'admin
+    private List<Long> seedUsers(String adminToken, String suffix) throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < userCount; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"name\":\"User ").append(i).append("\",\"email\":\"user-").append(i).append('-')
+                    .append(suffix).append("\",\"password\":\"").append(PASSWORD)
+                    .append("\"}");
+        }
+        body.append(']');
+        JsonNode results = objectMapper.readTree(send(post("/users/batch", body.toString(), adminToken)));
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode result : results) {
+            if (result.hasNonNull("id")) {
+                ids.add(result.get("id").asLong());
+            }
+        }
+        assertTrue(!ids.isEmpty(), "No user created by the batch endpoint");
+        return ids;
+    }
+
+    private String login(String email) throws Exception {
+        String response = send(post("/auth/login",
+                "{\"username\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}", null));
+        return objectMapper.readTree(response).get("token").asText();
+    }
+
+    private String send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String json, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void checkSlo(List<String> violations, LatencyRecorder recorder, double p99Millis) {
+        if (recorder.count() == 0) {
+            return;
+        }
+        double p99 = recorder.percentileMillis(99);
+        if (p99 > p99Millis) {
+            violations.add(String.format("%s p99 %.1f ms > %.1f ms", recorder.name(), p99, p99Millis));
+        }
+        double errorRate = (double) recorder.errors() / recorder.count();
+        if (errorRate > sloMaxErrorRate) {
+            violations.add(String.format("%s error rate %.2f%% > %.2f%%", recorder.name(), errorRate * 100,
+                    sloMaxErrorRate * 100));
+        }
+    }
+
+    private String report(Map<String, LatencyRecorder> recorders, double elapsedSeconds) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load test: %d clients, %.1f s%n", clients, elapsedSeconds));
+        report.append(String.format("%-18s %8s %10s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms"));
+        for (LatencyRecorder recorder : recorders.values()) {
+            report.append(String.format("%-18s %8d %10.1f %8d %9.1f %9.1f %9.1f %9.1f%n",
+                    recorder.name(), recorder.count(), recorder.count() / elapsedSeconds, recorder.errors(),
+                    recorder.percentileMillis(50), recorder.percentileMillis(95),
+                    recorder.percentileMillis(99), recorder.percentileMillis(99.9)));
+        }
+        return report.toString();
+    }
+}
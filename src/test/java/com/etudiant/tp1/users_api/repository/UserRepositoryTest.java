@@ -0,0 +1,215 @@
+package com.etudiant.tp1.users_api.repository;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserPageVersion;
+import com.etudiant.tp1.users_api.model.UserUpdate;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test des écritures partielles, de l'empreinte de page et du cache de second niveau
+// sur une base SQLite (profil loadtest) ; sans transaction de test : chaque appel est
+// validé, puis relu
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/repository-test.db?busy_timeout=10000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Met les deux utilisateurs dans le cache de second niveau (entité et email)
+    private void warmCache(User... users) {
+        for (User user : users) {
+            repository.findById(user.getId());
+            repository.findByEmail(user.getEmail());
+        }
+    }
+
+    // Relit l'utilisateur par email puis par id : les deux lectures sont servies par le cache
+    private void assertStillCached(User user) {
+        assertTrue(entityManagerFactory.getCache().contains(User.class, user.getId()));
+        statistics().clear();
+        assertEquals(user.getEmail(), repository.findByEmail(user.getEmail()).orElseThrow().getEmail());
+        assertEquals(user.getName(), repository.findById(user.getId()).orElseThrow().getName());
+        assertEquals(1, statistics().getNaturalIdCacheHitCount());
+        assertEquals(0, statistics().getNaturalIdCacheMissCount());
+        assertEquals(0, statistics().getSecondLevelCacheMissCount());
+    }
+
+    private User save(String email, String role) {
+        return repository.save(new User("Name", email, "hashed", role));
+    }
+
+    private User reload(User user) {
+        return repository.findById(user.getId()).orElseThrow();
+    }
+
+    // Teste qu'un PATCH du seul nom n'écrit que le nom et incrémente la version
+    @Test
+    void updateFields_shouldWriteOnlyProvidedColumns() {
+        User user = save("a@example.com", "ADMIN");
+
+        assertTrue(repository.updateFields(user.getId(), new UserUpdate("New", null, null, null), null).isPresent());
+
+        User updated = reload(user);
+        assertEquals("New", updated.getName());
+        assertEquals("a@example.com", updated.getEmail());
+        assertEquals("hashed", updated.getPassword());
+        assertEquals("ADMIN", updated.getRole());
+        assertEquals(user.getVersion() + 1, updated.getVersion());
+        assertEquals(user.getTokenVersion(), updated.getTokenVersion());
+    }
+
+    // Teste que token_version ne change que si l'email, le rôle ou le mot de passe change
+    @Test
+    void updateFields_shouldBumpTokenVersionOnlyForCredentialChanges() {
+        User user = save("a@example.com", "USER");
+        long id = user.getId();
+
+        // Valeurs identiques : pas de révocation
+        repository.updateFields(id, new UserUpdate(null, "a@example.com", null, "USER"), null);
+        assertEquals(0, reload(user).getTokenVersion());
+
+        repository.updateFields(id, new UserUpdate(null, null, null, "ADMIN"), null);
+        assertEquals(1, reload(user).getTokenVersion());
+
+        repository.updateFields(id, new UserUpdate(null, "b@example.com", null, null), null);
+        assertEquals(2, reload(user).getTokenVersion());
+
+        repository.updateFields(id, new UserUpdate(null, null, "rehashed", null), null);
+        User updated = reload(user);
+        assertEquals(3, updated.getTokenVersion());
+        assertEquals("rehashed", updated.getPassword());
+        assertEquals("b@example.com", updated.getEmail());
+        assertEquals("ADMIN", updated.getRole());
+        assertEquals(user.getVersion() + 4, updated.getVersion());
+    }
+
+    // Teste qu'une version périmée (If-Match) ne modifie rien et renvoie un résultat vide
+    @Test
+    void updateFields_shouldReturnEmptyOnStaleVersion() {
+        User user = save("a@example.com", "USER");
+        long id = user.getId();
+        repository.updateFields(id, new UserUpdate("First", null, null, null), user.getVersion());
+
+        assertTrue(repository.updateFields(id, new UserUpdate("Second", null, null, "ADMIN"), user.getVersion())
+                .isEmpty());
+        assertTrue(repository.updateFields(id, new UserUpdate("Second", null, null, null), user.getVersion())
+                .isEmpty());
+        assertTrue(repository.updateFields(9_000L, new UserUpdate("Second", null, null, null), null).isEmpty());
+
+        User current = reload(user);
+        assertEquals("First", current.getName());
+        assertEquals("USER", current.getRole());
+        assertEquals(user.getVersion() + 1, current.getVersion());
+    }
+
+    // Teste que l'empreinte calculée en base est celle des lignes lues, et qu'elle
+    // change après une modification d'une ligne de la page
+    @Test
+    void findPageVersion_shouldMatchPageAndChangeOnUpdate() {
+        List<User> users = List.of(save("a@example.com", "USER"), save("b@example.com", "USER"),
+                save("c@example.com", "USER"), save("d@example.com", "USER"));
+        long after = users.get(0).getId();
+
+        UserPageVersion before = repository.findPageVersion(after, 2);
+        assertEquals(UserPageVersion.of(repository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(2))), before);
+        assertEquals(UserPageVersion.ofFields(repository.findFieldsByIdGreaterThan(Set.of("name"), after, 2)), before);
+        assertEquals(2, before.count());
+
+        repository.updateFields(users.get(2).getId(), new UserUpdate("New", null, null, null), null);
+        assertNotEquals(before, repository.findPageVersion(after, 2));
+        // Ligne hors de la page : empreinte inchangée
+        UserPageVersion changed = repository.findPageVersion(after, 2);
+        repository.updateFields(users.get(3).getId(), new UserUpdate("New", null, null, null), null);
+        assertEquals(changed, repository.findPageVersion(after, 2));
+    }
+
+    // Teste qu'une modification n'évince que l'utilisateur modifié du cache de second
+    // niveau, et que l'ancien email ne résout plus vers lui
+    @Test
+    void updateFields_shouldKeepOtherUsersCached() {
+        User a = save("a@example.com", "USER");
+        User b = save("b@example.com", "USER");
+        warmCache(a, b);
+
+        repository.updateFields(a.getId(), new UserUpdate("New", "a2@example.com", null, null), null);
+
+        assertStillCached(b);
+        assertEquals("New", repository.findById(a.getId()).orElseThrow().getName());
+        assertTrue(repository.findByEmail("a@example.com").isEmpty());
+        assertEquals(a.getId(), repository.findByEmail("a2@example.com").orElseThrow().getId());
+    }
+
+    // Teste qu'un PATCH du nom et une suppression s'exécutent en une seule requête,
+    // et qu'un changement de rôle renvoie l'ancien rôle
+    @Test
+    void updateFieldsAndDeleteRowById_shouldRunSingleStatement() {
+        User user = save("a@example.com", "USER");
+        long id = user.getId();
+
+        statistics().clear();
+        UserIdEmailRole renamed = repository.updateFields(id, new UserUpdate("New", null, null, null),
+                user.getVersion()).orElseThrow();
+        assertEquals(1, statistics().getPrepareStatementCount());
+        assertEquals(new UserIdEmailRole(id, null, null), renamed);
+
+        assertEquals(new UserIdEmailRole(id, "a@example.com", "USER"),
+                repository.updateFields(id, new UserUpdate(null, null, null, "ADMIN"), null).orElseThrow());
+
+        statistics().clear();
+        assertEquals(new UserIdEmailRole(id, "a@example.com", "ADMIN"), repository.deleteRowById(id).orElseThrow());
+        assertEquals(1, statistics().getPrepareStatementCount());
+        assertTrue(repository.deleteRowById(id).isEmpty());
+    }
+
+    // Teste qu'une suppression n'évince que l'utilisateur supprimé
+    @Test
+    void deleteRowById_shouldKeepOtherUsersCached() {
+        User a = save("a@example.com", "USER");
+        User b = save("b@example.com", "USER");
+        warmCache(a, b);
+
+        assertTrue(repository.deleteRowById(a.getId()).isPresent());
+
+        assertStillCached(b);
+        assertTrue(repository.findById(a.getId()).isEmpty());
+        assertTrue(repository.findByEmail("a@example.com").isEmpty());
+    }
+}
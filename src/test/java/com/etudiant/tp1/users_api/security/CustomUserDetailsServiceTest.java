@@ -0,0 +1,82 @@
+package com.etudiant.tp1.users_api.security;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Test unitaire du cache de CustomUserDetailsService
+class CustomUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        service = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "cacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.init();
+    }
+
+    // Teste que le second chargement ne refait pas de requête en base
+    @Test
+    void loadUserByUsername_shouldHitCache() {
+        User user = new User("Test", "test@example.com", "hashed", "USER");
+        user.setId(1L);
+        Mockito.when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        service.loadUserByUsername("test@example.com");
+        UserDetails details = service.loadUserByUsername("test@example.com");
+
+        assertEquals("hashed", details.getPassword());
+        Mockito.verify(userRepository, Mockito.times(1)).findByEmail("test@example.com");
+        assertEquals(1, service.cacheStats().hitCount());
+    }
+
+    // Teste qu'un changement de rôle invalide l'entrée en cache
+    @Test
+    void onUserChanged_shouldInvalidateUpdatedUser() {
+        User user = new User("Test", "test@example.com", "hashed", "USER");
+        user.setId(1L);
+        User promoted = new User("Test", "test@example.com", "hashed", "ADMIN");
+        promoted.setId(1L);
+        Mockito.when(userRepository.findByEmail("test@example.com"))
+                .thenReturn(Optional.of(user), Optional.of(promoted));
+
+        service.loadUserByUsername("test@example.com");
+        service.onUserChanged(UserChangedEvent.updatedInPlace(1L, null, "ADMIN",
+                new UserIdEmailRole(1L, "test@example.com", "USER")));
+        UserDetails details = service.loadUserByUsername("test@example.com");
+
+        assertEquals("ROLE_ADMIN", details.getAuthorities().iterator().next().getAuthority());
+    }
+
+    // Teste qu'une suppression par id invalide l'entrée même sans connaître l'email
+    @Test
+    void onUserChanged_shouldInvalidateDeletedUserById() {
+        User user = new User("Test", "test@example.com", "hashed", "USER");
+        user.setId(1L);
+        Mockito.when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        service.loadUserByUsername("test@example.com");
+        service.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, 1L, null, null, null, null));
+        service.loadUserByUsername("test@example.com");
+
+        Mockito.verify(userRepository, Mockito.times(2)).findByEmail("test@example.com");
+    }
+}
@@ -0,0 +1,94 @@
+package com.etudiant.tp1.users_api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Test unitaire du filtre JWT en mode autoporteur
+class JwtAuthenticationFilterTest {
+
+    private JwtService jwtService;
+    private UserDetailsService userDetailsService;
+    private TokenVersionRegistry tokenVersionRegistry;
+    private JwtAuthenticationFilter filter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret",
+                "monsecretultra-secret-long-de-32-caracteres-minimum-pour-hs256");
+        ReflectionTestUtils.setField(jwtService, "expirationTime", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "claimsCacheEnabled", true);
+        ReflectionTestUtils.setField(jwtService, "claimsCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtService, "meterRegistry", meterRegistry);
+        jwtService.init();
+
+        userDetailsService = Mockito.mock(UserDetailsService.class);
+        tokenVersionRegistry = Mockito.mock(TokenVersionRegistry.class);
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "tokenVersionRegistry", tokenVersionRegistry);
+        ReflectionTestUtils.setField(filter, "statelessEnabled", true);
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.initMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private String adminToken() {
+        return jwtService.generateToken(new AuthenticatedUser(1L, "admin@example.com", "hashed", "ADMIN", 2,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    private void doFilter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    // Teste que le rôle est lu dans le token, sans charger l'utilisateur
+    @Test
+    void statelessToken_shouldAuthenticateWithoutUserLookup() throws Exception {
+        Mockito.when(tokenVersionRegistry.isCurrent(1L, 2)).thenReturn(true);
+
+        doFilter(adminToken());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("admin@example.com", authentication.getName());
+        assertEquals("ROLE_ADMIN", authentication.getAuthorities().iterator().next().getAuthority());
+        Mockito.verifyNoInteractions(userDetailsService);
+    }
+
+    // Teste qu'un token dont la version a été dépassée n'authentifie pas la requête
+    @Test
+    void statelessToken_shouldBeRejectedAfterRevocation() throws Exception {
+        Mockito.when(tokenVersionRegistry.isCurrent(1L, 2)).thenReturn(false);
+
+        doFilter(adminToken());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(1, meterRegistry.get("auth.jwt.filter").tag("outcome", "revoked").timer().count());
+    }
+}
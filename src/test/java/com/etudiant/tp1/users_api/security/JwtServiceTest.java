@@ -0,0 +1,63 @@
+package com.etudiant.tp1.users_api.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Test unitaire de la vérification des tokens par JwtService
+class JwtServiceTest {
+
+    private static final String SECRET = "monsecretultra-secret-long-de-32-caracteres-minimum-pour-hs256";
+
+    private JwtService newService(long expiration, boolean cacheEnabled) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "expirationTime", expiration);
+        ReflectionTestUtils.setField(service, "claimsCacheEnabled", cacheEnabled);
+        ReflectionTestUtils.setField(service, "claimsCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.init();
+        return service;
+    }
+
+    // Teste qu'un token généré est vérifié et que ses claims sont réutilisés
+    @Test
+    void parseToken_shouldReturnCachedClaims() {
+        JwtService service = newService(60_000, true);
+        String token = service.generateToken("test@example.com");
+
+        Claims first = service.parseToken(token);
+        Claims second = service.parseToken(token);
+
+        assertEquals("test@example.com", first.getSubject());
+        assertSame(first, second);
+    }
+
+    // Teste qu'un token expiré est rejeté
+    @Test
+    void parseToken_shouldRejectExpiredToken() {
+        JwtService service = newService(-1_000, true);
+        String token = service.generateToken("test@example.com");
+
+        assertThrows(ExpiredJwtException.class, () -> service.parseToken(token));
+    }
+
+    // Teste qu'un token modifié est rejeté, même si la version d'origine est en cache
+    @Test
+    void parseToken_shouldRejectTamperedToken() {
+        JwtService service = newService(60_000, true);
+        String token = service.generateToken("test@example.com");
+        service.parseToken(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> service.parseToken(tampered));
+    }
+}
@@ -0,0 +1,72 @@
+package com.etudiant.tp1.users_api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Test unitaire du limiteur de tentatives de connexion
+class LoginThrottleTest {
+
+    // Horloge contrôlée par le test (nanosecondes)
+    private final AtomicLong now = new AtomicLong();
+
+    private LoginThrottle newThrottle() {
+        LoginThrottle throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "emailCapacity", 3);
+        ReflectionTestUtils.setField(throttle, "emailRefillPeriod", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(throttle, "ipCapacity", 5);
+        ReflectionTestUtils.setField(throttle, "ipRefillPeriod", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(throttle, "maxKeys", 1000L);
+        ReflectionTestUtils.setField(throttle, "meterRegistry", new SimpleMeterRegistry());
+        throttle.ticker = now::get;
+        throttle.init();
+        return throttle;
+    }
+
+    // Teste que la rafale est acceptée puis que la tentative suivante est refusée
+    @Test
+    void acquire_shouldRejectOnceEmailBurstIsSpent() {
+        LoginThrottle throttle = newThrottle();
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("user@example.com", "10.0.0." + i);
+        }
+
+        LoginThrottledException e = assertThrows(LoginThrottledException.class,
+                () -> throttle.acquire("USER@example.com ", "10.0.0.9"));
+        assertEquals(10, e.getRetryAfterSeconds());
+    }
+
+    // Teste qu'une tentative est rendue après une période
+    @Test
+    void acquire_shouldRefillAfterPeriod() {
+        LoginThrottle throttle = newThrottle();
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("user@example.com", "10.0.0." + i);
+        }
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertDoesNotThrow(() -> throttle.acquire("user@example.com", "10.0.0.9"));
+        assertThrows(LoginThrottledException.class, () -> throttle.acquire("user@example.com", "10.0.0.9"));
+    }
+
+    // Teste la limite par IP, quel que soit l'email visé
+    @Test
+    void acquire_shouldRejectOnceIpBurstIsSpent() {
+        LoginThrottle throttle = newThrottle();
+        for (int i = 0; i < 5; i++) {
+            throttle.acquire("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        assertThrows(LoginThrottledException.class, () -> throttle.acquire("other@example.com", "10.0.0.1"));
+        assertDoesNotThrow(() -> throttle.acquire("other@example.com", "10.0.0.2"));
+    }
+}
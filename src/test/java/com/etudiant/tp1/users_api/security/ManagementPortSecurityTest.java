@@ -0,0 +1,68 @@
+package com.etudiant.tp1.users_api.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test de bout en bout de l'accès à /actuator/prometheus : sans token sur le port de
+// gestion, refusé sur le port public (base SQLite, profil loadtest)
+// @AutoConfigureObservability : l'export Prometheus est désactivé par défaut en test
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:sqlite:target/management-test.db?busy_timeout=10000")
+class ManagementPortSecurityTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> get(int port, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Teste le scrape sans token sur le port de gestion
+    @Test
+    void prometheus_shouldBePublicOnManagementPort() throws Exception {
+        HttpResponse<String> response = get(managementPort, "/actuator/prometheus");
+
+        assertNotEquals(port, managementPort);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("# TYPE jvm_"));
+    }
+
+    // Teste que le port public ne sert pas les métriques sans token
+    @Test
+    void prometheus_shouldRequireTokenOnApplicationPort() throws Exception {
+        int status = get(port, "/actuator/prometheus").statusCode();
+
+        assertTrue(status == 401 || status == 403, "status " + status);
+    }
+
+    // Teste que /actuator/metrics reste authentifié, même sur le port de gestion
+    @Test
+    void metrics_shouldRequireTokenOnManagementPort() throws Exception {
+        int status = get(managementPort, "/actuator/metrics").statusCode();
+
+        assertTrue(status == 401 || status == 403, "status " + status);
+    }
+}
@@ -0,0 +1,49 @@
+package com.etudiant.tp1.users_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test unitaire du filtre de Bloom des emails
+class EmailBloomFilterTest {
+
+    // Teste l'absence de faux négatifs : tout email ajouté est reconnu
+    @Test
+    void mightContain_shouldAcceptEveryAddedEmail() {
+        EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    // Teste que le taux de faux positifs reste proche de la valeur demandée
+    @Test
+    void mightContain_shouldKeepFalsePositivesNearTarget() {
+        EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    // Teste le dimensionnement : environ 9,6 bits et 7 hachages par email pour 1 %
+    @Test
+    void constructor_shouldSizeForTargetRate() {
+        EmailBloomFilter filter = new EmailBloomFilter(1_000_000, 0.01);
+
+        assertEquals(7, filter.hashCount());
+        assertTrue(filter.bitCount() >= 9_585_059L && filter.bitCount() < 9_585_059L + 64);
+    }
+}
@@ -0,0 +1,121 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+// Test de la création en masse sur une base SQLite (profil loadtest) : batchs JDBC,
+// rejeu ligne par ligne d'un paquet en conflit et relecture des ids générés
+// Sans transaction de test : chaque paquet est validé par sa propre transaction
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/batch-test.db?busy_timeout=10000",
+        "users.batch.jdbc-batch-size=2"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(UserBatchService.class)
+class UserBatchServiceTest {
+
+    @Autowired
+    private UserBatchService service;
+
+    @Autowired
+    private UserRepository repository;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        Mockito.when(passwordEncoder.encode(any())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(service, "repository", repository);
+    }
+
+    private static User user(String email) {
+        return new User("Name", email, "secret", null);
+    }
+
+    // Teste l'insertion sur plusieurs paquets et la relecture des ids dans l'ordre de la requête
+    @Test
+    void createAll_shouldInsertInChunksAndReadBackIds() {
+        List<User> users = new ArrayList<>(List.of(
+                user("a@example.com"), user("b@example.com"), user(""),
+                user("c@example.com"), user("a@example.com"), user("d@example.com")));
+
+        List<BatchItemResult> results = service.createAll(users);
+
+        assertEquals(6, results.size());
+        assertEquals(BatchItemResult.Status.INVALID, results.get(2).status());
+        assertEquals(BatchItemResult.Status.CONFLICT, results.get(4).status());
+        for (int i : List.of(0, 1, 3, 5)) {
+            BatchItemResult result = results.get(i);
+            User saved = repository.findByEmail(result.email()).orElseThrow();
+            assertEquals(BatchItemResult.Status.CREATED, result.status());
+            assertEquals(saved.getId(), result.id());
+            assertEquals("hashed:secret", saved.getPassword());
+            assertEquals("USER", saved.getRole());
+        }
+        assertEquals(4, repository.count());
+    }
+
+    // Teste le rejeu ligne par ligne quand un email est créé entre la vérification et l'insertion
+    @Test
+    void createAll_shouldReplayChunkRowByRowOnConflict() {
+        repository.save(user("taken@example.com"));
+        // La vérification préalable ne voit pas l'email : seule la contrainte unique le détecte
+        UserRepository racing = Mockito.mock(UserRepository.class, AdditionalAnswers.delegatesTo(repository));
+        Mockito.doReturn(List.of()).when(racing).findExistingEmails(anyCollection());
+        ReflectionTestUtils.setField(service, "repository", racing);
+
+        List<BatchItemResult> results = service.createAll(new ArrayList<>(List.of(
+                user("a@example.com"), user("taken@example.com"), user("b@example.com"))));
+
+        assertEquals(BatchItemResult.Status.CREATED, results.get(0).status());
+        assertEquals(BatchItemResult.Status.CONFLICT, results.get(1).status());
+        assertEquals(BatchItemResult.Status.CREATED, results.get(2).status());
+        assertEquals(repository.findByEmail("a@example.com").orElseThrow().getId(), results.get(0).id());
+        assertEquals(repository.findByEmail("b@example.com").orElseThrow().getId(), results.get(2).id());
+        assertEquals(3, repository.count());
+    }
+
+    // Teste qu'une ligne insérée mais non relue provoque une erreur au lieu d'un résultat vide
+    @Test
+    void createAll_shouldFailWhenInsertedIdIsNotReadBack() {
+        UserRepository missing = Mockito.mock(UserRepository.class, AdditionalAnswers.delegatesTo(repository));
+        Mockito.doReturn(List.of()).when(missing).findIdsByEmailIn(anyCollection());
+        ReflectionTestUtils.setField(service, "repository", missing);
+
+        assertThrows(IllegalStateException.class,
+                () -> service.createAll(new ArrayList<>(List.of(user("a@example.com")))));
+    }
+}
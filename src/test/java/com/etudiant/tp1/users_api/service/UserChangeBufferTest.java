@@ -0,0 +1,58 @@
+package com.etudiant.tp1.users_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Test unitaire du tampon de reprise du flux de changements
+class UserChangeBufferTest {
+
+    // Teste le rejeu des événements suivant le dernier reçu
+    @Test
+    void since_shouldReturnEventsAfterSequence() {
+        UserChangeBuffer<String> buffer = new UserChangeBuffer<>(3);
+        buffer.append("a");
+        buffer.append("b");
+
+        assertEquals(List.of("a", "b"), buffer.since(0));
+        assertEquals(List.of("b"), buffer.since(1));
+        assertEquals(List.of(), buffer.since(2));
+    }
+
+    // Teste qu'une reprise est refusée quand des événements ont été écrasés
+    @Test
+    void since_shouldReturnNullOnceEventsAreOverwritten() {
+        UserChangeBuffer<String> buffer = new UserChangeBuffer<>(3);
+        for (String item : List.of("a", "b", "c", "d", "e")) {
+            buffer.append(item);
+        }
+
+        assertEquals(List.of("c", "d", "e"), buffer.since(2));
+        assertNull(buffer.since(1));
+    }
+
+    // Teste qu'un numéro plus grand que le dernier (autre instance) est refusé
+    @Test
+    void since_shouldReturnNullForUnknownSequence() {
+        UserChangeBuffer<String> buffer = new UserChangeBuffer<>(3);
+        buffer.append("a");
+
+        assertNull(buffer.since(5));
+    }
+
+    // Teste qu'aucune reprise n'enjambe des événements perdus, mais qu'elle reprend ensuite
+    @Test
+    void since_shouldReturnNullAcrossGap() {
+        UserChangeBuffer<String> buffer = new UserChangeBuffer<>(3);
+        buffer.append("a");
+        buffer.markGap();
+        buffer.append("b");
+
+        assertNull(buffer.since(0));
+        assertNull(buffer.since(1));
+        assertEquals(List.of(), buffer.since(2));
+    }
+}
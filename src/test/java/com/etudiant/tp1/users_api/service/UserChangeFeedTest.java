@@ -0,0 +1,139 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Test unitaire de la diffusion du flux GET /users/changes avec un abonné bloqué
+class UserChangeFeedTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final RecordingEmitter stalled = new RecordingEmitter(release);
+    private final RecordingEmitter fast = new RecordingEmitter(null);
+    private final UserChangeFeed feed = newFeed();
+
+    private UserChangeFeed newFeed() {
+        UserChangeFeed changeFeed = new UserChangeFeed() {
+            @Override
+            SseEmitter createEmitter(long timeout) {
+                return stalled.taken ? fast : stalled.take();
+            }
+        };
+        ReflectionTestUtils.setField(changeFeed, "bufferSize", 100);
+        ReflectionTestUtils.setField(changeFeed, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(changeFeed, "subscriberBufferSize", 2);
+        ReflectionTestUtils.setField(changeFeed, "publishQueueSize", 100);
+        ReflectionTestUtils.setField(changeFeed, "heartbeatInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(changeFeed, "emitterTimeout", Duration.ofHours(1));
+        ReflectionTestUtils.setField(changeFeed, "reconnectDelay", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(changeFeed, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(changeFeed, "meterRegistry", meterRegistry);
+        changeFeed.init();
+        return changeFeed;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        feed.shutdown();
+    }
+
+    // Teste qu'un abonné qui ne lit plus ne retarde pas les autres et est fermé quand sa file déborde
+    @Test
+    void publish_shouldNotWaitForStalledSubscriberAndCloseItOnOverflow() throws InterruptedException {
+        feed.subscribe(null);
+        feed.subscribe(null);
+        // Le premier envoi (ready) bloque l'abonné lent
+        await(() -> stalled.sendAttempts() == 1);
+
+        // Chaque événement parvient à l'abonné rapide pendant que l'autre reste bloqué
+        for (long id = 1; id <= 10; id++) {
+            feed.onUserChanged(UserChangedEvent.updatedInPlace(id, "user" + id + "@example.com", null,
+                    new UserIdEmailRole(id, "old" + id + "@example.com", null)));
+            int expected = (int) id + 1;
+            await(() -> fast.frames.size() == expected);
+        }
+
+        await(() -> meterRegistry.get("users.changes.subscribers").gauge().value() == 1);
+        assertEquals(1, meterRegistry.get("users.changes.overflows").counter().count());
+        assertEquals(10, meterRegistry.get("users.changes.events").counter().count());
+
+        // Débloqué, l'abonné fermé termine sa réponse sans envoyer la suite
+        release.countDown();
+        await(() -> stalled.completed);
+        assertEquals(1, stalled.sendAttempts());
+        assertFalse(fast.completed);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition non atteinte en 5 s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // Client simulé : enregistre les trames, ou reste bloqué dans l'envoi jusqu'au signal
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch blockUntil;
+        private final List<Set<DataWithMediaType>> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean taken;
+        private volatile boolean completed;
+
+        private RecordingEmitter(CountDownLatch blockUntil) {
+            this.blockUntil = blockUntil;
+        }
+
+        private RecordingEmitter take() {
+            taken = true;
+            return this;
+        }
+
+        private int sendAttempts() {
+            return frames.size();
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            frames.add(items);
+            if (blockUntil != null) {
+                // Socket pleine : l'envoi ne rend pas la main, même interrompu
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = blockUntil.await(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        // ignoré, comme une écriture bloquante
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
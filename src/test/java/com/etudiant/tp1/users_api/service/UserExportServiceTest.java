@@ -0,0 +1,74 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Test de l'export NDJSON sur une base SQLite (profil loadtest)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:sqlite:target/export-test.db?busy_timeout=10000")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(UserExportService.class)
+class UserExportServiceTest {
+
+    @Autowired
+    private UserExportService service;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+    }
+
+    // Teste une ligne par utilisateur, dans l'ordre des ids, sans mot de passe
+    @Test
+    void exportNdjson_shouldWriteOneLinePerUserWithoutPassword() throws Exception {
+        User a = repository.save(new User("A", "a@example.com", "hashed-a", "USER"));
+        User b = repository.save(new User("B", "b@example.com", "hashed-b", "ADMIN"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = service.exportNdjson(out);
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        List<String> lines = ndjson.lines().toList();
+        assertEquals(2, count);
+        assertEquals(2, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(a.getId().longValue(), first.get("id").asLong());
+        assertEquals("a@example.com", first.get("email").asText());
+        assertEquals("ADMIN", objectMapper.readTree(lines.get(1)).get("role").asText());
+        assertEquals(b.getId().longValue(), objectMapper.readTree(lines.get(1)).get("id").asLong());
+        for (String line : lines) {
+            assertFalse(objectMapper.readTree(line).has("password"), line);
+        }
+        assertFalse(ndjson.contains("hashed"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Test de la suppression en masse sur une base SQLite (profil loadtest) : un
+// événement par ligne réellement supprimée, aucun pour les ids absents
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/purge-test.db?busy_timeout=10000",
+        "users.bulk-delete.chunk-size=2"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+@Import(UserPurgeService.class)
+class UserPurgeServiceTest {
+
+    @Autowired
+    private UserPurgeService service;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+    }
+
+    private User save(String email, String role) {
+        return repository.save(new User("Name", email, "hashed", role));
+    }
+
+    private List<Long> deletedIds() {
+        return events.stream(UserChangedEvent.class)
+                .filter(event -> event.type() == UserChangedEvent.Type.DELETED)
+                .map(UserChangedEvent::userId)
+                .toList();
+    }
+
+    private List<String> deletedRoles() {
+        return events.stream(UserChangedEvent.class)
+                .filter(event -> event.type() == UserChangedEvent.Type.DELETED)
+                .map(UserChangedEvent::previousRole)
+                .toList();
+    }
+
+    // Teste une liste mêlant ids présents et absents, sur plusieurs paquets
+    @Test
+    void deleteByIds_shouldPublishEventsOnlyForDeletedRows() {
+        long a = save("a@example.com", "USER").getId();
+        long b = save("b@example.com", "USER").getId();
+        long c = save("c@example.com", "ADMIN").getId();
+
+        long deleted = service.deleteByIds(List.of(a, 9_000L, b, 9_001L, 9_002L, a));
+
+        assertEquals(2, deleted);
+        assertEquals(List.of(a, b), deletedIds());
+        assertEquals(List.of("USER", "USER"), deletedRoles());
+        assertTrue(repository.existsById(c));
+        assertEquals(1, repository.count());
+    }
+
+    // Teste la suppression par filtre : seules les lignes qui le vérifient sont supprimées
+    @Test
+    void deleteMatching_shouldPublishEventsOnlyForMatchingRows() {
+        long a = save("a@example.com", "USER").getId();
+        long b = save("b@example.com", "ADMIN").getId();
+        long c = save("c@example.com", "USER").getId();
+        long d = save("d@example.com", "USER").getId();
+
+        long deleted = service.deleteMatching("USER", null);
+
+        assertEquals(3, deleted);
+        assertEquals(List.of(a, c, d), deletedIds());
+        assertEquals(List.of("USER", "USER", "USER"), deletedRoles());
+        assertFalse(deletedIds().contains(b));
+        assertEquals(1, repository.count());
+    }
+}
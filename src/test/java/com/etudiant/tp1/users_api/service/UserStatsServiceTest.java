@@ -0,0 +1,86 @@
+package com.etudiant.tp1.users_api.service;
+
+import com.etudiant.tp1.users_api.event.UserChangedEvent;
+import com.etudiant.tp1.users_api.model.RoleCount;
+import com.etudiant.tp1.users_api.model.User;
+import com.etudiant.tp1.users_api.model.UserIdEmailRole;
+import com.etudiant.tp1.users_api.model.UserStats;
+import com.etudiant.tp1.users_api.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Test unitaire des compteurs de GET /users/stats
+class UserStatsServiceTest {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+    private final UserStatsService service = newService();
+
+    private UserStatsService newService() {
+        UserStatsService stats = new UserStatsService();
+        ReflectionTestUtils.setField(stats, "reconcileInterval", Duration.ofHours(1));
+        // Pas de recalage automatique pendant le test
+        ReflectionTestUtils.setField(stats, "resyncDelay", Duration.ofHours(1));
+        ReflectionTestUtils.setField(stats, "repository", repository);
+        stats.init();
+        return stats;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static User user(long id, String role) {
+        User user = new User("Name", "user" + id + "@example.com", "hashed", role);
+        user.setId(id);
+        return user;
+    }
+
+    // Teste qu'aucune statistique n'est servie avant le premier recalage
+    @Test
+    void currentStats_shouldBeNullBeforeFirstReconcile() {
+        assertNull(service.currentStats());
+    }
+
+    // Teste le recalage puis la mise à jour incrémentale par les événements, sans
+    // recalage : l'ancien rôle est porté par la modification et la suppression
+    @Test
+    void onUserChanged_shouldUpdateCountersAfterReconcile() {
+        Mockito.when(repository.countByRole()).thenReturn(List.of(new RoleCount("USER", 10), new RoleCount("ADMIN", 2)));
+        service.reconcile();
+
+        service.onUserChanged(UserChangedEvent.created(user(13, "USER")));
+        service.onUserChanged(UserChangedEvent.updatedInPlace(13L, null, "ADMIN",
+                new UserIdEmailRole(13L, "user13@example.com", "USER")));
+        service.onUserChanged(UserChangedEvent.deleted(new UserIdEmailRole(5L, "user5@example.com", "USER")));
+
+        UserStats stats = service.currentStats();
+        assertEquals(12, stats.total());
+        assertEquals(Map.of("USER", 9L, "ADMIN", 3L), stats.byRole());
+        Mockito.verify(repository, Mockito.times(1)).countByRole();
+    }
+
+    // Teste que le recalage corrige l'écart laissé par une suppression sans rôle connu
+    @Test
+    void reconcile_shouldReplaceDriftedCounters() {
+        Mockito.when(repository.countByRole()).thenReturn(List.of(new RoleCount("USER", 10), new RoleCount("ADMIN", 2)));
+        service.reconcile();
+        service.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, 5L, null, null, null, null));
+
+        Mockito.when(repository.countByRole()).thenReturn(List.of(new RoleCount("USER", 9), new RoleCount("ADMIN", 2)));
+        service.reconcile();
+
+        UserStats stats = service.currentStats();
+        assertEquals(11, stats.total());
+        assertEquals(Map.of("USER", 9L, "ADMIN", 2L), stats.byRole());
+    }
+}